@@ -0,0 +1,162 @@
+import java.io.IOException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Saves an inventory in the background whenever it has unsaved changes, so
+ * that a crash loses at most a few seconds of work.
+ *
+ * A change schedules a save delayMillis later, letting a burst of changes go out
+ * as one journal commit. Saves run one at a time on the autosaver's own
+ * thread, and the next one starts no sooner than the minimum interval after
+ * the previous one finished: when saving falls behind, changes pile up in
+ * the journal buffer and go out together instead of queuing more saves.
+ * A failed save is retried with a growing interval.
+ *
+ * Inventory.saveToFile works from a snapshot and writes files through a
+ * temporary file that is renamed atomically, so neither readers nor the
+ * UI wait for an autosave.
+ */
+public class AutoSaver implements InventoryListener, AutoCloseable {
+
+    /** Time from the first unsaved change to the save. */
+    public static final long DEFAULT_DELAY_MILLIS = 1000;
+    /** Minimum time between the end of one save and the start of the next. */
+    public static final long DEFAULT_MIN_INTERVAL_MILLIS = 5000;
+    /** Longest retry interval after failed saves. */
+    static final long MAX_RETRY_MILLIS = 60_000;
+
+    private static final LongAdder SAVES = Metrics.global().counter("autosave.saves");
+    private static final LongAdder FAILURES = Metrics.global().counter("autosave.failures");
+
+    private final Inventory inventory;
+    private final long delayMillis;
+    private final long minIntervalMillis;
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "inventory-autosave");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+    private volatile long lastSaveNanos = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+    private volatile long retryMillis; // 0 unless the last save failed
+    private volatile boolean closed;
+    private volatile Consumer<String> statusListener = message -> { };
+
+    public AutoSaver(Inventory inventory) {
+        this(inventory, DEFAULT_DELAY_MILLIS, DEFAULT_MIN_INTERVAL_MILLIS);
+    }
+
+    public AutoSaver(Inventory inventory, long delayMillis, long minIntervalMillis) {
+        this.inventory = inventory;
+        this.delayMillis = delayMillis;
+        this.minIntervalMillis = minIntervalMillis;
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false); // close() saves instead
+    }
+
+    /**
+     * Sets a listener for failed autosaves and for the first successful one
+     * after a failure, called on the autosaver's thread with a status message.
+     */
+    public void setStatusListener(Consumer<String> statusListener) {
+        this.statusListener = statusListener;
+    }
+
+    /**
+     * Starts following the inventory's changes. Call once the inventory has
+     * loaded: a save during a load would write a partial snapshot.
+     */
+    public void start() {
+        inventory.addInventoryListener(this);
+        scheduleSave();
+    }
+
+    private void scheduleSave() {
+        if (closed || !inventory.isDirty() || !saveScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        long gap = retryMillis > 0 ? retryMillis : minIntervalMillis;
+        long wait = Math.max(TimeUnit.MILLISECONDS.toNanos(delayMillis),
+                lastSaveNanos + TimeUnit.MILLISECONDS.toNanos(gap) - System.nanoTime());
+        executor.schedule(this::runSave, wait, TimeUnit.NANOSECONDS);
+    }
+
+    private void runSave() {
+        try {
+            save();
+        } finally {
+            lastSaveNanos = System.nanoTime();
+            saveScheduled.set(false);
+            scheduleSave(); // Changes made while this save was running, or a retry
+        }
+    }
+
+    private void save() {
+        if (closed || !inventory.isDirty()) {
+            return;
+        }
+        try {
+            inventory.saveToFile();
+            SAVES.increment();
+            if (retryMillis > 0) {
+                retryMillis = 0;
+                statusListener.accept("Autosave recovered; all changes saved.");
+            }
+        } catch (IOException | RuntimeException e) {
+            FAILURES.increment();
+            retryMillis = Math.min(MAX_RETRY_MILLIS, Math.max(minIntervalMillis, retryMillis * 2));
+            System.err.println("Autosave failed: " + e.getMessage());
+            statusListener.accept("Autosave failed: " + e.getMessage() + " (retrying)");
+        }
+    }
+
+    /**
+     * Stops autosaving and saves any remaining changes on the calling thread,
+     * after an autosave in progress has finished.
+     * @throws IOException if the final save fails.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        inventory.removeInventoryListener(this);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (inventory.isDirty()) {
+            inventory.saveToFile();
+        }
+    }
+
+    // --- InventoryListener ---
+
+    @Override
+    public void productAdded(Product product, int row) {
+        scheduleSave();
+    }
+
+    @Override
+    public void productsAdded(int firstRow, int lastRow) {
+        scheduleSave();
+    }
+
+    @Override
+    public void productUpdated(Product product, int row) {
+        scheduleSave();
+    }
+
+    @Override
+    public void productRemoved(Product product, int row, int lastRow) {
+        scheduleSave();
+    }
+
+    @Override
+    public void inventoryChanged() {
+        scheduleSave();
+    }
+}
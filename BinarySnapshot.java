@@ -0,0 +1,298 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Versioned binary snapshot format for the inventory.
+ *
+ * Layout (little-endian):
+ * <pre>
+ * header   magic "INVB", version, record count, max ID (ID allocator high-water mark),
+ *          heap offset (long), heap length (long)
+ * records  one fixed-width 40-byte record per product:
+ *          id, type tag (byte) + 3 padding bytes, price (double), quantity,
+ *          warranty months, name offset, name length, detail offset, detail length
+ * heap     UTF-8 bytes of every name and text detail, referenced by offset/length
+ * </pre>
+ * Loading maps the file and scans the records sequentially; only names and
+ * details are decoded into Strings. Null names and expiration dates are
+ * stored as "null", as in the CSV format.
+ */
+public final class BinarySnapshot {
+    public static final int MAGIC = 0x42564E49; // "INVB" read little-endian
+    public static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 40;
+
+    static final byte TYPE_ELECTRONICS = ProductStore.ELECTRONICS;
+    static final byte TYPE_GROCERIES = ProductStore.GROCERIES;
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final int PROGRESS_INTERVAL = 1 << 14; // records between progress reports
+    private static final int INTERNED_STRINGS = 1 << 16; // distinct names, and dates, shared per read
+
+    private BinarySnapshot() {
+    }
+
+    /**
+     * Checks whether a file starts with the binary snapshot magic number.
+     */
+    public static boolean isBinarySnapshot(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // keep reading until four bytes or end of file
+            }
+            return magic.position() == 4 && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Writes a snapshot's products to a binary snapshot file, replacing its
+     * contents. Records are written through a large buffer rather than a
+     * writable mapping, so the file is not held open by a mapping when it is
+     * renamed. Fields are read per row, so no product is built. Unpaired
+     * surrogates are written as '?', as String.getBytes would.
+     * @param maxId ID high-water mark to record; raised to the highest product ID if lower.
+     * @throws IllegalArgumentException for product types without a type tag.
+     */
+    public static void write(Path file, InventorySnapshot products, int maxId) throws IOException {
+        int count = products.size();
+        long heapLength = 0;
+        for (int row = 0; row < count; row++) {
+            maxId = Math.max(maxId, products.getIdAt(row));
+            heapLength += products.getNameUtf8LengthAt(row) + utf8Length(detailText(products, row));
+        }
+        if (heapLength > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot string heap too large: " + heapLength + " bytes");
+        }
+        long heapOffset = HEADER_SIZE + (long) count * RECORD_SIZE;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(maxId)
+                  .putLong(heapOffset).putLong(heapLength);
+
+            int stringOffset = 0;
+            for (int row = 0; row < count; row++) {
+                if (buffer.remaining() < RECORD_SIZE) {
+                    drain(channel, buffer);
+                }
+                byte type = products.getTypeTagAt(row);
+                if (type != TYPE_ELECTRONICS && type != TYPE_GROCERIES) {
+                    throw new IllegalArgumentException("Unsupported product type: " + products.getTypeAt(row));
+                }
+                int nameLength = products.getNameUtf8LengthAt(row);
+                int detailLength = utf8Length(detailText(products, row));
+                buffer.putInt(products.getIdAt(row))
+                      .put(type).put((byte) 0).put((byte) 0).put((byte) 0)
+                      .putDouble(products.getPriceAt(row))
+                      .putInt(products.getQuantityAt(row))
+                      .putInt(type == TYPE_ELECTRONICS ? products.getWarrantyAt(row) : 0)
+                      .putInt(stringOffset).putInt(nameLength)
+                      .putInt(stringOffset + nameLength).putInt(detailLength);
+                stringOffset += nameLength + detailLength;
+            }
+
+            CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            for (int row = 0; row < count; row++) {
+                int nameLength = products.getNameUtf8LengthAt(row);
+                if (nameLength > buffer.remaining() && nameLength <= buffer.capacity()) {
+                    drain(channel, buffer);
+                }
+                if (nameLength > buffer.remaining() || !products.putNameUtf8At(row, buffer)) {
+                    encode(encoder, String.valueOf(products.getNameAt(row)), channel, buffer);
+                }
+                encode(encoder, detailText(products, row), channel, buffer);
+            }
+            drain(channel, buffer);
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Reads every product in a binary snapshot through a read-only mapping.
+     * Records with an unknown type tag are skipped with a message.
+     * @param progress Receives the fraction of records read so far (0 to 1).
+     * @return The ID high-water mark recorded in the snapshot header.
+     * @throws IOException if the file is not a supported binary snapshot.
+     */
+    public static int read(Path file, Consumer<Product> sink, DoubleConsumer progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Truncated snapshot header: " + file);
+            }
+            ByteBuffer header = map(channel, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a binary inventory snapshot: " + file);
+            }
+            int version = header.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            int count = header.getInt(8);
+            int maxId = header.getInt(12);
+            long heapOffset = header.getLong(16);
+            long heapLength = header.getLong(24);
+            long recordsLength = (long) count * RECORD_SIZE;
+            if (count < 0 || heapOffset != HEADER_SIZE + recordsLength || heapOffset + heapLength > fileSize) {
+                throw new IOException("Corrupt snapshot header: " + file);
+            }
+
+            ByteBuffer records = map(channel, HEADER_SIZE, recordsLength);
+            ByteBuffer heap = map(channel, heapOffset, heapLength);
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+            // Repeated names and expiration dates share one String
+            StringDictionary names = new StringDictionary(INTERNED_STRINGS);
+            StringDictionary dates = new StringDictionary(INTERNED_STRINGS);
+            for (int i = 0, pos = 0; i < count; i++, pos += RECORD_SIZE) {
+                int id = records.getInt(pos);
+                byte type = records.get(pos + 4);
+                double price = records.getDouble(pos + 8);
+                int quantity = records.getInt(pos + 16);
+                int nameOffset = records.getInt(pos + 24);
+                int nameLength = records.getInt(pos + 28);
+                int detailOffset = records.getInt(pos + 32);
+                int detailLength = records.getInt(pos + 36);
+                if (!inHeap(nameOffset, nameLength, heapLength) || !inHeap(detailOffset, detailLength, heapLength)) {
+                    throw new IOException("Corrupt snapshot record " + i + " (ID " + id + "): " + file);
+                }
+                String name = decode(decoder, names, heap, nameOffset, nameLength);
+
+                if (type == TYPE_ELECTRONICS) {
+                    sink.accept(new Electronics(id, name, price, quantity, records.getInt(pos + 20)));
+                } else if (type == TYPE_GROCERIES) {
+                    String detail = decode(decoder, dates, heap, detailOffset, detailLength);
+                    sink.accept(new Groceries(id, name, price, quantity, detail));
+                } else {
+                    System.err.println("Skipping record with unknown type " + type + " (ID " + id + ")");
+                }
+                if ((i & PROGRESS_INTERVAL - 1) == PROGRESS_INTERVAL - 1) {
+                    progress.accept((double) (i + 1) / count);
+                }
+            }
+            progress.accept(1.0);
+            return maxId;
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot section too large to map: " + length + " bytes");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static boolean inHeap(int offset, int length, long heapLength) {
+        return offset >= 0 && length >= 0 && offset <= heapLength - length;
+    }
+
+    /**
+     * Text detail stored in the string heap (Electronics keep theirs in the record).
+     */
+    private static String detailText(InventorySnapshot products, int row) {
+        if (products.getTypeTagAt(row) != TYPE_GROCERIES) {
+            return "";
+        }
+        return String.valueOf(products.getExpirationDateAt(row));
+    }
+
+    private static String decode(CharsetDecoder decoder, StringDictionary strings, ByteBuffer heap,
+                                 int offset, int length) throws IOException {
+        if (length == 0) {
+            return "";
+        }
+        String text = strings.lookup(heap, offset, length);
+        if (text != null) {
+            return text;
+        }
+        ByteBuffer bytes = heap.duplicate();
+        bytes.limit(offset + length).position(offset);
+        return strings.intern(decoder.decode(bytes).toString());
+    }
+
+    private static void encode(CharsetEncoder encoder, String text, FileChannel channel, ByteBuffer buffer)
+            throws IOException {
+        // ASCII, i.e. nearly every name and date, is copied without the encoder
+        int ascii = 0;
+        for (int n = text.length(); ascii < n; ascii++) {
+            char c = text.charAt(ascii);
+            if (c >= 0x80) {
+                break;
+            }
+            if (!buffer.hasRemaining()) {
+                drain(channel, buffer);
+            }
+            buffer.put((byte) c);
+        }
+        if (ascii == text.length()) {
+            return;
+        }
+        encoder.reset();
+        CharBuffer chars = CharBuffer.wrap(text, ascii, text.length());
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                drain(channel, buffer);
+            } else if (result.isError()) {
+                result.throwException();
+            } else {
+                break;
+            }
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain(channel, buffer);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Number of bytes the string takes in UTF-8, without encoding it.
+     * Unpaired surrogates count as one byte, for the '?' they are replaced with.
+     */
+    static int utf8Length(String text) {
+        int length = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,484 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays product storage: one primitive array per field and a
+ * single byte arena holding every name as UTF-8. Expiration dates, of which
+ * there are only a few hundred distinct ones, are dictionary-encoded: a slot
+ * stores an int code into a StringDictionary shared by all slots.
+ *
+ * A million products cost a handful of arrays instead of a million objects
+ * (plus their Strings), and scans over prices or quantities walk contiguous
+ * memory. get() builds a detached Product view on demand; changes to a view
+ * are stored through set(), which Inventory.updateProduct does.
+ *
+ * The columns are split into chunks of CHUNK_SIZE slots, which snapshot()
+ * shares instead of copying; the store copies a shared chunk the first time
+ * it writes to it afterwards.
+ *
+ * Only Electronics and Groceries can be stored.
+ */
+public class ColumnarProductStore implements ProductStore {
+    private static final int NULL_LENGTH = -1; // marks a null string
+    private static final int NULL_NAME_LENGTH = "null".length(); // as appendNameAt writes it
+
+    // Expiration date codes: a code of expiryTexts, or one of these
+    private static final int NULL_TEXT = -1; // null, and Electronics slots
+    private static final int TEXT_OF_DAY = -2; // a valid date, formatted from the epoch day
+    // Below ARENA_TEXT: ARENA_TEXT - offset of a length-prefixed string in the arena
+    private static final int ARENA_TEXT = -3;
+    /** Distinct expiration texts kept in the dictionary; later ones are stored as above. */
+    static final int MAX_EXPIRY_TEXTS = 1 << 16;
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * CHUNK_SIZE slots of every column. A chunk belongs to the store epoch it
+     * was created in; chunks from earlier epochs are shared with snapshots
+     * and must not be written.
+     */
+    private static final class Chunk {
+        final long epoch;
+        final int[] ids;
+        final byte[] types;
+        final double[] prices;
+        final int[] quantities;
+        // Warranty months for Electronics, expiry epoch day for Groceries
+        final int[] intDetails;
+        final int[] nameOffsets;
+        final int[] nameLengths;
+        final int[] expiryCodes; // Groceries expiration date text
+
+        Chunk(long epoch) {
+            this.epoch = epoch;
+            ids = new int[CHUNK_SIZE];
+            types = new byte[CHUNK_SIZE];
+            prices = new double[CHUNK_SIZE];
+            quantities = new int[CHUNK_SIZE];
+            intDetails = new int[CHUNK_SIZE];
+            nameOffsets = new int[CHUNK_SIZE];
+            nameLengths = new int[CHUNK_SIZE];
+            expiryCodes = new int[CHUNK_SIZE];
+        }
+
+        Chunk(long epoch, Chunk from) {
+            this.epoch = epoch;
+            ids = from.ids.clone();
+            types = from.types.clone();
+            prices = from.prices.clone();
+            quantities = from.quantities.clone();
+            intDetails = from.intDetails.clone();
+            nameOffsets = from.nameOffsets.clone();
+            nameLengths = from.nameLengths.clone();
+            expiryCodes = from.expiryCodes.clone();
+        }
+    }
+
+    private int size;
+    private Chunk[] chunks = new Chunk[4];
+    private long epoch; // advanced by snapshot()
+
+    private byte[] arena = new byte[256];
+    private int arenaLength;
+    private int arenaGarbage; // bytes no longer referenced by any slot
+    // Append-only, so snapshots can share it
+    private StringDictionary expiryTexts = new StringDictionary(MAX_EXPIRY_TEXTS);
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Product get(int slot) {
+        Chunk c = chunk(slot);
+        int i = slot & CHUNK_MASK;
+        String name = string(c.nameOffsets[i], c.nameLengths[i]);
+        if (c.types[i] == ELECTRONICS) {
+            return new Electronics(c.ids[i], name, c.prices[i], c.quantities[i], c.intDetails[i]);
+        }
+        return new Groceries(c.ids[i], name, c.prices[i], c.quantities[i],
+                expiryText(c.expiryCodes[i], c.intDetails[i]));
+    }
+
+    @Override
+    public int add(Product product) {
+        byte type = ProductStore.typeTag(product);
+        ensureCapacity(size + 1);
+        int slot = size++;
+        if (chunks[slot >>> CHUNK_SHIFT] == null) {
+            chunks[slot >>> CHUNK_SHIFT] = new Chunk(epoch);
+        }
+        write(slot, type, product);
+        return slot;
+    }
+
+    @Override
+    public void set(int slot, Product product) {
+        Chunk c = chunk(slot);
+        byte type = ProductStore.typeTag(product);
+        int i = slot & CHUNK_MASK;
+        arenaGarbage += stored(c.nameLengths[i]) + storedExpiry(c.expiryCodes[i]);
+        write(slot, type, product);
+    }
+
+    private void write(int slot, byte type, Product product) {
+        Chunk c = writable(slot);
+        int i = slot & CHUNK_MASK;
+        c.ids[i] = product.getId();
+        c.types[i] = type;
+        c.prices[i] = product.getPrice();
+        c.quantities[i] = product.getQuantity();
+        c.intDetails[i] = type == ELECTRONICS
+                ? ((Electronics) product).getWarrantyPeriod()
+                : ((Groceries) product).getExpiryEpochDay();
+        String expiry = type == GROCERIES ? ((Groceries) product).getExpirationDate() : null;
+        int expiryCode = encodeExpiry(expiry, c.intDetails[i]);
+        // Reserve room for both strings first, so compaction cannot move one of them
+        byte[] name = bytes(product.getName());
+        byte[] arenaExpiry = expiryCode == ARENA_TEXT ? bytes(expiry) : null;
+        c.nameLengths[i] = 0;
+        c.expiryCodes[i] = NULL_TEXT;
+        ensureArenaCapacity(stored(name) + (arenaExpiry == null ? 0 : 4 + arenaExpiry.length));
+        c = writable(slot); // compaction may have replaced the chunk
+        c.nameOffsets[i] = append(name);
+        c.nameLengths[i] = name == null ? NULL_LENGTH : name.length;
+        c.expiryCodes[i] = arenaExpiry == null ? expiryCode : ARENA_TEXT - appendPrefixed(arenaExpiry);
+    }
+
+    @Override
+    public void swapRemove(int slot) {
+        Chunk c = chunk(slot);
+        int i = slot & CHUNK_MASK;
+        arenaGarbage += stored(c.nameLengths[i]) + storedExpiry(c.expiryCodes[i]);
+        int last = --size;
+        if (slot < last) {
+            Chunk from = chunks[last >>> CHUNK_SHIFT];
+            int j = last & CHUNK_MASK;
+            c = writable(slot);
+            c.ids[i] = from.ids[j];
+            c.types[i] = from.types[j];
+            c.prices[i] = from.prices[j];
+            c.quantities[i] = from.quantities[j];
+            c.intDetails[i] = from.intDetails[j];
+            c.nameOffsets[i] = from.nameOffsets[j];
+            c.nameLengths[i] = from.nameLengths[j];
+            c.expiryCodes[i] = from.expiryCodes[j];
+        }
+        if ((last & CHUNK_MASK) == 0) {
+            chunks[last >>> CHUNK_SHIFT] = null; // the last chunk is empty now
+        }
+        if (size == 0) {
+            clear();
+        }
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        // New chunks and a new arena rather than reset ones: snapshots may still read the old ones
+        chunks = new Chunk[4];
+        arena = new byte[256];
+        arenaLength = 0;
+        arenaGarbage = 0;
+    }
+
+    /**
+     * Shares the chunks, the arena and the expiry dictionary in
+     * O(size / CHUNK_SIZE). Starting a new epoch makes this store copy a chunk
+     * before it next writes to it. Arena bytes are never overwritten once
+     * written (strings are only appended, and compaction and clear() switch
+     * to a new array), and dictionary entries are only added, so the
+     * snapshot stays valid.
+     */
+    @Override
+    public ProductStore snapshot() {
+        ColumnarProductStore copy = new ColumnarProductStore();
+        copy.size = size;
+        copy.chunks = Arrays.copyOf(chunks, Math.max(1, chunkCount(size)));
+        copy.arena = arena;
+        copy.arenaLength = arenaLength;
+        copy.expiryTexts = expiryTexts;
+        epoch++;
+        copy.epoch = epoch; // its chunks are all older, so the copy would not write them either
+        return copy;
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        int needed = chunkCount(capacity);
+        if (needed > chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(needed, chunks.length * 2));
+        }
+    }
+
+    private static int chunkCount(int slots) {
+        return (int) (((long) slots + CHUNK_MASK) >>> CHUNK_SHIFT);
+    }
+
+    @Override
+    public int idAt(int slot) {
+        return chunk(slot).ids[slot & CHUNK_MASK];
+    }
+
+    @Override
+    public double priceAt(int slot) {
+        return chunk(slot).prices[slot & CHUNK_MASK];
+    }
+
+    @Override
+    public int quantityAt(int slot) {
+        return chunk(slot).quantities[slot & CHUNK_MASK];
+    }
+
+    @Override
+    public String nameAt(int slot) {
+        Chunk c = chunk(slot);
+        int i = slot & CHUNK_MASK;
+        return string(c.nameOffsets[i], c.nameLengths[i]);
+    }
+
+    @Override
+    public String typeAt(int slot) {
+        return chunk(slot).types[slot & CHUNK_MASK] == ELECTRONICS ? "Electronics" : "Groceries";
+    }
+
+    @Override
+    public byte typeTagAt(int slot) {
+        return chunk(slot).types[slot & CHUNK_MASK];
+    }
+
+    @Override
+    public int expiryDayAt(int slot) {
+        Chunk c = chunk(slot);
+        int i = slot & CHUNK_MASK;
+        return c.types[i] == GROCERIES ? c.intDetails[i] : Groceries.NO_EXPIRY;
+    }
+
+    @Override
+    public int warrantyAt(int slot) {
+        Chunk c = chunk(slot);
+        int i = slot & CHUNK_MASK;
+        return c.types[i] == ELECTRONICS ? c.intDetails[i] : Electronics.NO_WARRANTY;
+    }
+
+    @Override
+    public String expiryTextAt(int slot) {
+        Chunk c = chunk(slot);
+        int i = slot & CHUNK_MASK;
+        return c.types[i] == GROCERIES ? expiryText(c.expiryCodes[i], c.intDetails[i]) : null;
+    }
+
+    /**
+     * Appends ASCII names straight from the arena, without decoding them into a String.
+     */
+    @Override
+    public void appendNameAt(int slot, StringBuilder out) {
+        Chunk c = chunk(slot);
+        int i = slot & CHUNK_MASK;
+        int offset = c.nameOffsets[i];
+        int length = c.nameLengths[i];
+        if (length == NULL_LENGTH) {
+            out.append((String) null);
+            return;
+        }
+        for (int j = offset, end = offset + length; j < end; j++) {
+            if (arena[j] < 0) {
+                out.append(string(offset, length));
+                return;
+            }
+        }
+        for (int j = offset, end = offset + length; j < end; j++) {
+            out.append((char) arena[j]);
+        }
+    }
+
+    @Override
+    public int nameUtf8LengthAt(int slot) {
+        int length = chunk(slot).nameLengths[slot & CHUNK_MASK];
+        return length == NULL_LENGTH ? NULL_NAME_LENGTH : length;
+    }
+
+    /**
+     * Copies the name's bytes straight from the arena. Null names are left
+     * to the caller.
+     */
+    @Override
+    public boolean putNameUtf8At(int slot, ByteBuffer buffer) {
+        Chunk c = chunk(slot);
+        int i = slot & CHUNK_MASK;
+        if (c.nameLengths[i] == NULL_LENGTH) {
+            return false;
+        }
+        buffer.put(arena, c.nameOffsets[i], c.nameLengths[i]);
+        return true;
+    }
+
+    /**
+     * Returns the chunk holding a slot, for reading.
+     */
+    private Chunk chunk(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Slot: " + slot + ", Size: " + size);
+        }
+        return chunks[slot >>> CHUNK_SHIFT];
+    }
+
+    /**
+     * Returns the chunk holding a slot, for writing: a chunk shared with a
+     * snapshot is replaced by a copy first.
+     */
+    private Chunk writable(int slot) {
+        int n = slot >>> CHUNK_SHIFT;
+        Chunk c = chunks[n];
+        if (c.epoch != epoch) {
+            c = new Chunk(epoch, c);
+            chunks[n] = c;
+        }
+        return c;
+    }
+
+    // --- EXPIRATION DATES ---
+
+    /**
+     * Returns the code for an expiration text, or ARENA_TEXT if the text has
+     * to go into the arena because the dictionary is full.
+     */
+    private int encodeExpiry(String text, int epochDay) {
+        if (text == null) {
+            return NULL_TEXT;
+        }
+        int code = expiryTexts.encode(text);
+        if (code != StringDictionary.NO_CODE) {
+            return code;
+        }
+        // A valid date is always written YYYY-MM-DD, so its day gives the text back
+        return epochDay != Groceries.NO_EXPIRY ? TEXT_OF_DAY : ARENA_TEXT;
+    }
+
+    private String expiryText(int code, int epochDay) {
+        if (code >= 0) {
+            return expiryTexts.decode(code);
+        } else if (code == NULL_TEXT) {
+            return null;
+        } else if (code == TEXT_OF_DAY) {
+            return LocalDate.ofEpochDay(epochDay).toString();
+        }
+        int offset = ARENA_TEXT - code;
+        return new String(arena, offset + 4, prefixedLength(arena, offset), StandardCharsets.UTF_8);
+    }
+
+    private int storedExpiry(int code) {
+        return code <= ARENA_TEXT ? 4 + prefixedLength(arena, ARENA_TEXT - code) : 0;
+    }
+
+    // --- STRING ARENA ---
+
+    private static byte[] bytes(String text) {
+        return text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String string(int offset, int length) {
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        return length == 0 ? "" : new String(arena, offset, length, StandardCharsets.UTF_8);
+    }
+
+    private static int stored(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static int stored(int length) {
+        return Math.max(length, 0);
+    }
+
+    /**
+     * Appends a string preceded by its length in 4 bytes.
+     * @return Its offset.
+     */
+    private int appendPrefixed(byte[] bytes) {
+        int offset = arenaLength;
+        int length = bytes.length;
+        arena[offset] = (byte) (length >>> 24);
+        arena[offset + 1] = (byte) (length >>> 16);
+        arena[offset + 2] = (byte) (length >>> 8);
+        arena[offset + 3] = (byte) length;
+        arenaLength += 4;
+        append(bytes);
+        return offset;
+    }
+
+    private static int prefixedLength(byte[] arena, int offset) {
+        return (arena[offset] & 0xFF) << 24 | (arena[offset + 1] & 0xFF) << 16
+                | (arena[offset + 2] & 0xFF) << 8 | (arena[offset + 3] & 0xFF);
+    }
+
+    private int append(byte[] bytes) {
+        int offset = arenaLength;
+        if (bytes != null) {
+            System.arraycopy(bytes, 0, arena, offset, bytes.length);
+            arenaLength += bytes.length;
+        }
+        return offset;
+    }
+
+    /**
+     * Makes room for the given number of bytes, first reclaiming the space of
+     * replaced and removed strings when at least half the arena is garbage.
+     */
+    private void ensureArenaCapacity(int extra) {
+        if ((long) arenaLength + extra <= arena.length) {
+            return;
+        }
+        if (arenaGarbage >= arenaLength / 2) {
+            compactArena(extra);
+        } else {
+            grow((long) arenaLength + extra);
+        }
+    }
+
+    private void grow(long required) {
+        if (required > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("String arena full");
+        }
+        arena = Arrays.copyOf(arena, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, (long) arena.length * 2)));
+    }
+
+    /**
+     * Copies every live string into a fresh arena in slot order.
+     */
+    private void compactArena(int extra) {
+        long live = (long) arenaLength - arenaGarbage;
+        byte[] old = arena;
+        arena = new byte[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(256, (live + extra) * 2))];
+        arenaLength = 0;
+        arenaGarbage = 0;
+        for (int slot = 0; slot < size; slot += CHUNK_SIZE) {
+            Chunk c = writable(slot);
+            for (int i = 0, n = Math.min(CHUNK_SIZE, size - slot); i < n; i++) {
+                c.nameOffsets[i] = move(old, c.nameOffsets[i], c.nameLengths[i]);
+                int code = c.expiryCodes[i];
+                if (code <= ARENA_TEXT) {
+                    int offset = ARENA_TEXT - code;
+                    c.expiryCodes[i] = ARENA_TEXT - move(old, offset, 4 + prefixedLength(old, offset));
+                }
+            }
+        }
+        if (arenaLength + extra > arena.length) {
+            grow(arenaLength + (long) extra);
+        }
+    }
+
+    private int move(byte[] from, int offset, int length) {
+        int newOffset = arenaLength;
+        if (length > 0) {
+            System.arraycopy(from, offset, arena, newOffset, length);
+            arenaLength += length;
+        }
+        return newOffset;
+    }
+}
@@ -0,0 +1,339 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Parallel loader for CSV snapshots (ID,Type,Name,Price,Quantity,SpecificDetail).
+ *
+ * The file is cut into newline-aligned byte ranges that are parsed in
+ * parallel on a ForkJoinPool. Fields are scanned directly in the bytes: no
+ * per-line String, no split() and no regex; only names and expiration dates
+ * become Strings, and repeated ones within a chunk share one instance.
+ * Chunks are handed to the caller in file order, so the result is the same
+ * as a sequential read, and malformed lines are reported on System.err in
+ * file order exactly as the sequential loader did.
+ */
+public final class CsvChunkLoader {
+    /** Target bytes per chunk. */
+    static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+    /** Size of the first chunk; chunks double from here up to the target, so the first rows arrive quickly. */
+    static final int FIRST_CHUNK_SIZE = 256 << 10;
+
+    /** Distinct names and distinct expiration dates interned per chunk. */
+    static final int INTERNED_PER_CHUNK = 1 << 14;
+
+    /** Header field prefix that records the ID high-water mark, e.g. "MaxId=1234". */
+    static final String MAX_ID_FIELD = "MaxId=";
+
+    private static final byte[] ELECTRONICS = "Electronics".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GROCERIES = "Groceries".getBytes(StandardCharsets.US_ASCII);
+
+    // Powers of ten that are exact doubles, for the fast decimal path
+    private static final double[] POWERS_OF_TEN = new double[23];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private CsvChunkLoader() {
+    }
+
+    /**
+     * Products parsed from one chunk, with the lines that could not be parsed.
+     */
+    private static final class Chunk {
+        final List<Product> products = new ArrayList<>();
+        final List<String> malformedLines = new ArrayList<>();
+        // Only used while parsing; a few hundred dates usually cover the whole chunk
+        final StringDictionary names = new StringDictionary(INTERNED_PER_CHUNK);
+        final StringDictionary dates = new StringDictionary(INTERNED_PER_CHUNK);
+        int maxId;
+    }
+
+    /**
+     * Reads a CSV snapshot on the common ForkJoinPool.
+     * @param sink Receives the products of each chunk, in file order, on the calling thread.
+     * @param progress Receives the fraction of the file handed to the sink so far (0 to 1).
+     * @return The highest product ID read, or the high-water mark in the header if higher.
+     */
+    public static int read(Path file, Consumer<List<Product>> sink, DoubleConsumer progress) throws IOException {
+        return read(file, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE, sink, progress);
+    }
+
+    static int read(Path file, ForkJoinPool pool, int chunkSize, Consumer<List<Product>> sink,
+                    DoubleConsumer progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = skipLine(channel, 0, size); // Skip header row
+            int maxId = readMaxIdField(channel, start);
+            // Keep a bounded window of chunks in flight so memory stays O(window * chunkSize)
+            int window = Math.max(2, pool.getParallelism() * 2);
+            Deque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+            Deque<Long> chunkEnds = new ArrayDeque<>();
+            int nextChunkSize = Math.min(FIRST_CHUNK_SIZE, chunkSize);
+            while (start < size || !inFlight.isEmpty()) {
+                while (start < size && inFlight.size() < window) {
+                    long end = start + nextChunkSize >= size ? size : skipLine(channel, start + nextChunkSize, size);
+                    nextChunkSize = Math.min(nextChunkSize * 2, chunkSize);
+                    long from = start;
+                    inFlight.add(pool.submit(() -> parseChunk(channel, from, end)));
+                    chunkEnds.add(end);
+                    start = end;
+                }
+                Chunk chunk;
+                try {
+                    chunk = inFlight.removeFirst().join();
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                for (String line : chunk.malformedLines) {
+                    System.err.println("Skipping malformed line: " + line);
+                }
+                maxId = Math.max(maxId, chunk.maxId);
+                sink.accept(chunk.products);
+                progress.accept((double) chunkEnds.removeFirst() / size);
+            }
+            return maxId;
+        }
+    }
+
+    /**
+     * Returns the position just after the next newline at or after pos, or size.
+     */
+    private static long skipLine(FileChannel channel, long pos, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (pos < size) {
+            buffer.clear();
+            int n = channel.read(buffer, pos);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (buffer.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    /**
+     * Reads the MaxId= field of the header row, if there is one.
+     * @return The recorded high-water mark, or 0.
+     */
+    private static int readMaxIdField(FileChannel channel, long headerEnd) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(headerEnd, 4096));
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // keep reading until the header is in the buffer
+        }
+        byte[] prefix = MAX_ID_FIELD.getBytes(StandardCharsets.US_ASCII);
+        byte[] header = buffer.array();
+        int end = buffer.position();
+        while (end > 0 && (header[end - 1] == '\n' || header[end - 1] == '\r')) {
+            end--;
+        }
+        int fieldStart = 0;
+        for (int i = 0; i <= end; i++) {
+            if (i == end || header[i] == ',') {
+                if (i - fieldStart > prefix.length && equalsBytes(header, fieldStart, fieldStart + prefix.length, prefix)) {
+                    try {
+                        return Math.max(0, parseInt(header, fieldStart + prefix.length, i));
+                    } catch (NumberFormatException e) {
+                        System.err.println("Ignoring malformed " + MAX_ID_FIELD + " header field");
+                    }
+                }
+                fieldStart = i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static Chunk parseChunk(FileChannel channel, long start, long end) {
+        byte[] bytes = new byte[(int) (end - start)];
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    throw new IOException("File shrank while loading");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Chunk chunk = new Chunk();
+        int[] fieldStart = new int[6];
+        int[] fieldEnd = new int[6];
+        int pos = 0;
+        while (pos < bytes.length) {
+            int lineEnd = pos;
+            while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > pos && bytes[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            parseLine(bytes, pos, lineEnd, fieldStart, fieldEnd, chunk);
+            pos = next;
+        }
+        return chunk;
+    }
+
+    /**
+     * Parses one line with the same rules as the original split(",") loader:
+     * trailing empty fields are ignored, lines with fewer than five fields are
+     * skipped silently, unknown types are skipped, and bad numbers make the
+     * line malformed.
+     */
+    private static void parseLine(byte[] b, int start, int end, int[] fieldStart, int[] fieldEnd, Chunk chunk) {
+        int fields = 0;
+        int nonEmptyFields = 0; // split(",") drops trailing empty fields
+        int fieldBegin = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || b[i] == ',') {
+                if (fields < fieldStart.length) {
+                    fieldStart[fields] = fieldBegin;
+                    fieldEnd[fields] = i;
+                }
+                fields++;
+                if (i > fieldBegin) {
+                    nonEmptyFields = fields;
+                }
+                fieldBegin = i + 1;
+            }
+        }
+        if (nonEmptyFields < 5) {
+            return; // Skip malformed lines
+        }
+
+        try {
+            int id = parseInt(b, fieldStart[0], fieldEnd[0]);
+            double price = parseDouble(b, fieldStart[3], fieldEnd[3]);
+            int quantity = parseInt(b, fieldStart[4], fieldEnd[4]);
+            boolean hasDetail = nonEmptyFields > 5;
+
+            Product product = null;
+            if (equalsBytes(b, fieldStart[1], fieldEnd[1], ELECTRONICS)) {
+                int warranty = hasDetail && fieldEnd[5] > fieldStart[5] ? parseInt(b, fieldStart[5], fieldEnd[5]) : 0;
+                product = new Electronics(id, chunk.names.intern(b, fieldStart[2], fieldEnd[2]), price, quantity, warranty);
+            } else if (equalsBytes(b, fieldStart[1], fieldEnd[1], GROCERIES)) {
+                String expiry = hasDetail ? chunk.dates.intern(b, fieldStart[5], fieldEnd[5]) : "";
+                product = new Groceries(id, chunk.names.intern(b, fieldStart[2], fieldEnd[2]), price, quantity, expiry);
+            }
+
+            if (product != null) {
+                chunk.products.add(product);
+                if (id > chunk.maxId) {
+                    chunk.maxId = id; // Track the highest ID
+                }
+            }
+        } catch (NumberFormatException e) {
+            chunk.malformedLines.add(text(b, start, end));
+        }
+    }
+
+    private static String text(byte[] b, int start, int end) {
+        return new String(b, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private static boolean equalsBytes(byte[] b, int start, int end, byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (b[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same accepted syntax as Integer.parseInt: optional sign, then decimal digits.
+     */
+    static int parseInt(byte[] b, int start, int end) {
+        if (start >= end) {
+            throw new NumberFormatException("Empty number");
+        }
+        boolean negative = b[start] == '-';
+        int i = (negative || b[start] == '+') ? start + 1 : start;
+        if (i == end) {
+            throw new NumberFormatException("Sign without digits");
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = b[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid digit");
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new NumberFormatException("Integer overflow");
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Integer overflow");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses plain decimals ("12.5", "-3", "0.99") with up to 15 significant
+     * digits exactly: the digits form an exact long and the division by an
+     * exact power of ten is correctly rounded, so the result equals
+     * Double.parseDouble. Anything else (exponents, long mantissas, NaN, ...)
+     * falls back to Double.parseDouble.
+     */
+    static double parseDouble(byte[] b, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (b[i] == '-' || b[i] == '+')) {
+            negative = b[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean seenDot = false;
+        boolean fastPath = i < end;
+        for (; i < end && fastPath; i++) {
+            byte c = b[i];
+            if (c >= '0' && c <= '9') {
+                if (mantissa != 0 || c != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (seenDot) {
+                    fractionDigits++;
+                }
+                fastPath = digits <= 15 && fractionDigits < POWERS_OF_TEN.length;
+            } else if (c == '.' && !seenDot) {
+                seenDot = true;
+            } else {
+                fastPath = false;
+            }
+        }
+        if (fastPath && (end - start) > (seenDot ? 1 : 0) + (negative || b[start] == '+' ? 1 : 0)) {
+            double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(new String(b, start, end - start, StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Shared display texts for the specific detail of a product ("Warranty: 12 months",
+ * "Expires: 2025-01-31"). Inventories hold few distinct warranties and dates,
+ * so the texts are cached and repainting the Details column or calling
+ * Product.getSpecificDetail() normally builds no new strings.
+ *
+ * The caches are filled racily: two threads may build the same text, and one
+ * of them is kept. Strings are immutable, so that is harmless.
+ */
+final class DetailText {
+    private static final int MAX_CACHED_WARRANTY = 1200; // 100 years
+    private static final int EXPIRY_CACHE_SIZE = 1 << 12; // direct-mapped, by date hash
+
+    private static final String[] WARRANTIES = new String[MAX_CACHED_WARRANTY + 1];
+    private static final ExpiryText[] EXPIRIES = new ExpiryText[EXPIRY_CACHE_SIZE];
+
+    private DetailText() {
+    }
+
+    /**
+     * Returns "Warranty: N months".
+     */
+    static String warranty(int months) {
+        if (months < 0 || months > MAX_CACHED_WARRANTY) {
+            return "Warranty: " + months + " months";
+        }
+        String text = WARRANTIES[months];
+        if (text == null) {
+            text = "Warranty: " + months + " months";
+            WARRANTIES[months] = text;
+        }
+        return text;
+    }
+
+    /**
+     * Returns "Expires: " followed by the expiration date text.
+     */
+    static String expiry(String date) {
+        if (date == null) {
+            return "Expires: null";
+        }
+        int index = date.hashCode() & (EXPIRY_CACHE_SIZE - 1);
+        ExpiryText cached = EXPIRIES[index];
+        if (cached != null && (cached.date == date || cached.date.equals(date))) {
+            return cached.text;
+        }
+        cached = new ExpiryText(date, "Expires: " + date);
+        EXPIRIES[index] = cached;
+        return cached.text;
+    }
+
+    private static final class ExpiryText {
+        final String date;
+        final String text;
+
+        ExpiryText(String date, String text) {
+            this.date = date;
+            this.text = text;
+        }
+    }
+}
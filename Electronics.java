@@ -2,6 +2,9 @@
  * Represents an electronics product, extending the abstract Product class.
  */
 public class Electronics extends Product {
+    /** Warranty reported by ProductStore.warrantyAt for products that are not Electronics. */
+    public static final int NO_WARRANTY = Integer.MIN_VALUE;
+
     private int warrantyPeriod; // in months
 
     public Electronics(String name, double price, int quantity, int warrantyPeriod) {
@@ -22,15 +25,17 @@ public class Electronics extends Product {
     // --- Implemented Abstract Methods ---
     @Override
     public String getSpecificDetail() {
-        return "Warranty: " + warrantyPeriod + " months";
+        return DetailText.warranty(warrantyPeriod);
     }
 
     @Override
+    @Deprecated
     public Object getSpecificDetailObject() {
         return warrantyPeriod; // Return the integer
     }
 
     @Override
+    @Deprecated
     public void setSpecificDetailObject(Object detail) {
         try {
             this.warrantyPeriod = Integer.parseInt(detail.toString());
@@ -38,6 +43,11 @@ public class Electronics extends Product {
             this.warrantyPeriod = 0; // Default on error
         }
     }
+
+    @Override
+    public Product copy() {
+        return new Electronics(getId(), getName(), getPrice(), getQuantity(), warrantyPeriod);
+    }
     // --- End Implemented Methods ---
 
     // Getter and Setter
@@ -45,8 +55,9 @@ public class Electronics extends Product {
     public void setWarrantyPeriod(int warrantyPeriod) { this.warrantyPeriod = warrantyPeriod; }
 
     @Override
-    public String toCSVString() {
-        return super.toCSVString() + "," + warrantyPeriod;
+    public void appendCsv(StringBuilder out) {
+        super.appendCsv(out);
+        out.append(',').append(warrantyPeriod);
     }
 
     @Override
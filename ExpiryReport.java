@@ -0,0 +1,66 @@
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Result of an expiry query on an Inventory: the Groceries expiring in a
+ * date range, with the quantity and stock value at risk.
+ */
+public final class ExpiryReport {
+    private final LocalDate from;
+    private final LocalDate to;
+    private final int count;
+    private final long totalQuantity;
+    private final double totalValue;
+    private final List<Product> products;
+
+    ExpiryReport(LocalDate from, LocalDate to, int count, long totalQuantity, double totalValue, List<Product> products) {
+        this.from = from;
+        this.to = to;
+        this.count = count;
+        this.totalQuantity = totalQuantity;
+        this.totalValue = totalValue;
+        this.products = products;
+    }
+
+    /**
+     * Returns the first day of the range, or null if it is open-ended.
+     */
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    /**
+     * Returns the last day of the range (inclusive).
+     */
+    public LocalDate getTo() {
+        return to;
+    }
+
+    /**
+     * Returns the number of products expiring in the range.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the summed quantity of those products.
+     */
+    public long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    /**
+     * Returns the summed stock value (price * quantity) of those products.
+     */
+    public double getTotalValue() {
+        return totalValue;
+    }
+
+    /**
+     * Returns the products, soonest expiry first, up to the limit given to the query.
+     */
+    public List<Product> getProducts() {
+        return products;
+    }
+}
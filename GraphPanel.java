@@ -1,5 +1,8 @@
 import java.awt.BorderLayout;
 import java.awt.GridLayout;
+import java.awt.event.HierarchyEvent;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import javax.swing.JPanel;
@@ -14,12 +17,42 @@ import org.jfree.data.general.DefaultPieDataset;
 /**
  * A panel that displays various graphs based on the inventory data.
  * Requires JFreeChart and JCommon libraries.
+ *
+ * The charts are built once; refreshes change the values in their datasets
+ * in place, and only where they differ from what is shown. Refreshes are
+ * skipped while the inventory version is the one already shown, and deferred
+ * while the panel is not showing (e.g. another tab is selected); the panel
+ * catches up once when it is shown again. As a RefreshScheduler view it
+ * gathers the chart data off the EDT.
  */
-public class GraphPanel extends JPanel {
+public class GraphPanel extends JPanel implements RefreshScheduler.View<GraphPanel.ChartData> {
+
+    private static final String NO_DATA = "No Data";
+    private static final String STOCK_SERIES = "Stock";
+    private static final int TOP_N = 5;
 
     private Inventory inventory;
     private JPanel chartContainer;
 
+    // Raw type: DefaultPieDataset is not generic in this JFreeChart version
+    private final DefaultPieDataset pieDataset = new DefaultPieDataset();
+    private final DefaultCategoryDataset barDataset = new DefaultCategoryDataset();
+    private volatile long shownVersion = -1; // inventory version of the chart data, -1 to force a refresh
+    private volatile boolean displayed; // isShowing(), readable off the EDT
+
+    /**
+     * The data shown by the charts, gathered in one go.
+     */
+    public static final class ChartData {
+        private final Map<String, Long> categoryCounts;
+        private final List<Product> topProducts;
+
+        ChartData(Map<String, Long> categoryCounts, List<Product> topProducts) {
+            this.categoryCounts = categoryCounts;
+            this.topProducts = topProducts;
+        }
+    }
+
     public GraphPanel(Inventory inventory) {
         this.inventory = inventory;
         setLayout(new BorderLayout());
@@ -27,54 +60,68 @@ public class GraphPanel extends JPanel {
 
         // This container will hold the charts
         chartContainer = new JPanel(new GridLayout(1, 2, 10, 10)); // 1 row, 2 columns
+        chartContainer.add(new ChartPanel(createCategoryPieChart()));
+        chartContainer.add(new ChartPanel(createStockBarChart()));
         add(chartContainer, BorderLayout.CENTER);
 
+        // Catch up on deferred refreshes when the panel becomes visible
+        addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+                displayed = isShowing();
+                if (displayed) {
+                    apply(compute()); // null unless the inventory changed while hidden
+                }
+            }
+        });
+
         refreshGraphs();
     }
 
     /**
-     * Re-generates and displays all charts.
+     * Brings the charts up to date with the inventory, even if its version
+     * did not change. Does nothing while the panel is not showing; it
+     * refreshes when shown. Must be called on the Event Dispatch Thread.
      */
     public void refreshGraphs() {
-        chartContainer.removeAll();
-        
-        // 1. Create Pie Chart
-        JFreeChart pieChart = createCategoryPieChart();
-        ChartPanel pieChartPanel = new ChartPanel(pieChart);
-        chartContainer.add(pieChartPanel);
-
-        // 2. Create Bar Chart
-        JFreeChart barChart = createStockBarChart();
-        ChartPanel barChartPanel = new ChartPanel(barChart);
-        chartContainer.add(barChartPanel);
-
-        chartContainer.revalidate();
-        chartContainer.repaint();
+        shownVersion = -1;
+        if (isShowing()) {
+            apply(compute());
+        }
+    }
+
+    /**
+     * Reads the chart data from the inventory; safe on any thread.
+     * Returns null while the panel is hidden or the inventory is unchanged
+     * since the last refresh.
+     */
+    @Override
+    public ChartData compute() {
+        long version = inventory.getVersion();
+        if (!displayed || version == shownVersion) {
+            return null;
+        }
+        shownVersion = version; // read before the data, so a change in between refreshes again
+        return new ChartData(inventory.getCategoryCounts(), inventory.getTopNStockedProducts(TOP_N));
+    }
+
+    /**
+     * Shows previously gathered chart data. Must be called on the EDT.
+     */
+    @Override
+    public void apply(ChartData data) {
+        if (data != null) {
+            updatePieDataset(data.categoryCounts);
+            updateBarDataset(data.topProducts);
+        }
     }
 
     /**
      * Creates a Pie Chart showing product distribution by category.
      */
     private JFreeChart createCategoryPieChart() {
-        // --- FIX WAS HERE ---
-        // DefaultPieDataset<String> dataset = new DefaultPieDataset<>();
-        // The <String> generic type is removed to work with older JFreeChart versions
-        DefaultPieDataset dataset = new DefaultPieDataset();
-        // --- END FIX ---
-        
-        Map<String, Long> categoryCounts = inventory.getCategoryCounts();
-        
-        if (categoryCounts.isEmpty()) {
-            dataset.setValue("No Data", 100);
-        } else {
-            for (Map.Entry<String, Long> entry : categoryCounts.entrySet()) {
-                dataset.setValue(entry.getKey(), entry.getValue());
-            }
-        }
-        
         JFreeChart pieChart = ChartFactory.createPieChart(
             "Inventory by Category",
-            dataset,
+            pieDataset,
             true,  // Include legend
             true,
             false
@@ -86,24 +133,11 @@ public class GraphPanel extends JPanel {
      * Creates a Bar Chart showing the top 5 most stocked products.
      */
     private JFreeChart createStockBarChart() {
-        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-        List<Product> topProducts = inventory.getTopNStockedProducts(5);
-
-        if (topProducts.isEmpty()) {
-            dataset.addValue(0, "Stock", "No Data");
-        } else {
-            for (Product product : topProducts) {
-                // Use Name + ID for uniqueness in case of duplicate names
-                String label = product.getName() + " (ID:" + product.getId() + ")";
-                dataset.addValue(product.getQuantity(), "Stock", label);
-            }
-        }
-
         JFreeChart barChart = ChartFactory.createBarChart(
             "Top 5 Most Stocked Products",
             "Product",
             "Quantity",
-            dataset,
+            barDataset,
             PlotOrientation.VERTICAL,
             false, // No legend
             true,
@@ -111,5 +145,81 @@ public class GraphPanel extends JPanel {
         );
         return barChart;
     }
-}
 
+    /**
+     * Sets the pie slices to the category counts, touching only slices that
+     * changed. The chart redraws once, and not at all if nothing changed.
+     */
+    private void updatePieDataset(Map<String, Long> categoryCounts) {
+        Map<String, Number> slices = new LinkedHashMap<>();
+        if (categoryCounts.isEmpty()) {
+            slices.put(NO_DATA, 100);
+        } else {
+            slices.putAll(categoryCounts);
+        }
+
+        List<Comparable<?>> removed = new ArrayList<>();
+        for (Object key : pieDataset.getKeys()) {
+            if (!slices.containsKey(key)) {
+                removed.add((Comparable<?>) key);
+            }
+        }
+        Map<String, Number> changed = new LinkedHashMap<>();
+        for (Map.Entry<String, Number> slice : slices.entrySet()) {
+            if (pieDataset.getIndex(slice.getKey()) < 0
+                    || pieDataset.getValue(slice.getKey()).doubleValue() != slice.getValue().doubleValue()) {
+                changed.put(slice.getKey(), slice.getValue());
+            }
+        }
+        if (removed.isEmpty() && changed.isEmpty()) {
+            return;
+        }
+
+        pieDataset.setNotify(false);
+        for (Comparable<?> key : removed) {
+            pieDataset.remove(key);
+        }
+        for (Map.Entry<String, Number> slice : changed.entrySet()) {
+            pieDataset.setValue(slice.getKey(), slice.getValue());
+        }
+        pieDataset.setNotify(true); // one change event for the whole update
+    }
+
+    /**
+     * Sets the bars to the top products. If the same products are shown in
+     * the same order only changed quantities are set; otherwise the bars are
+     * replaced. The chart redraws once, and not at all if nothing changed.
+     */
+    private void updateBarDataset(List<Product> topProducts) {
+        Map<String, Integer> bars = new LinkedHashMap<>();
+        if (topProducts.isEmpty()) {
+            bars.put(NO_DATA, 0);
+        } else {
+            for (Product product : topProducts) {
+                // Use Name + ID for uniqueness in case of duplicate names
+                bars.put(product.getName() + " (ID:" + product.getId() + ")", product.getQuantity());
+            }
+        }
+
+        boolean sameBars = barDataset.getColumnKeys().equals(new ArrayList<>(bars.keySet()));
+        Map<String, Integer> changed = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> bar : bars.entrySet()) {
+            Number shown = sameBars ? barDataset.getValue(STOCK_SERIES, bar.getKey()) : null;
+            if (shown == null || shown.intValue() != bar.getValue()) {
+                changed.put(bar.getKey(), bar.getValue());
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        barDataset.setNotify(false);
+        if (!sameBars) {
+            barDataset.clear();
+        }
+        for (Map.Entry<String, Integer> bar : changed.entrySet()) {
+            barDataset.setValue(bar.getValue(), STOCK_SERIES, bar.getKey());
+        }
+        barDataset.setNotify(true); // one change event for the whole update
+    }
+}
@@ -1,8 +1,17 @@
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
 /**
  * Represents a grocery product, extending the abstract Product class.
  */
 public class Groceries extends Product {
+    /** Epoch day returned for a missing or unparsable expiration date. */
+    public static final int NO_EXPIRY = Integer.MIN_VALUE;
+    private static final int UNPARSED = Integer.MAX_VALUE;
+
     private String expirationDate;
+    // expirationDate parsed on first use; racing threads just parse it twice
+    private int expiryEpochDay = UNPARSED;
 
     public Groceries(String name, double price, int quantity, String expirationDate) {
         super(name, price, quantity);
@@ -22,28 +31,86 @@ public class Groceries extends Product {
     // --- Implemented Abstract Methods ---
     @Override
     public String getSpecificDetail() {
-        return "Expires: " + expirationDate;
+        return DetailText.expiry(expirationDate);
     }
-    
+
     @Override
+    @Deprecated
     public Object getSpecificDetailObject() {
         return expirationDate; // Return the string
     }
 
     @Override
+    @Deprecated
     public void setSpecificDetailObject(Object detail) {
         // A real app should validate this date string
-        this.expirationDate = detail.toString();
+        setExpirationDate(detail.toString());
+    }
+
+    @Override
+    public Product copy() {
+        return new Groceries(getId(), getName(), getPrice(), getQuantity(), expirationDate);
     }
     // --- End Implemented Methods ---
 
     // Getter and Setter
     public String getExpirationDate() { return expirationDate; }
-    public void setExpirationDate(String expirationDate) { this.expirationDate = expirationDate; }
+    public void setExpirationDate(String expirationDate) {
+        this.expirationDate = expirationDate;
+        this.expiryEpochDay = UNPARSED;
+    }
+
+    /**
+     * Returns the expiration date as days since 1970-01-01 (LocalDate.toEpochDay),
+     * or NO_EXPIRY if it is not a valid YYYY-MM-DD date. Parsed once.
+     */
+    public int getExpiryEpochDay() {
+        int day = expiryEpochDay;
+        if (day == UNPARSED) {
+            day = parseEpochDay(expirationDate);
+            expiryEpochDay = day;
+        }
+        return day;
+    }
+
+    /**
+     * Parses a YYYY-MM-DD date into an epoch day without going through
+     * DateTimeFormatter.
+     * @return The epoch day, or NO_EXPIRY if the text is not a valid date.
+     */
+    public static int parseEpochDay(String date) {
+        if (date == null || date.length() != 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            return NO_EXPIRY;
+        }
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 7);
+        int day = digits(date, 8, 10);
+        if (year < 0 || month < 0 || day < 0) {
+            return NO_EXPIRY;
+        }
+        try {
+            return (int) LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            return NO_EXPIRY; // e.g. month 13 or February 30
+        }
+    }
+
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
 
     @Override
-    public String toCSVString() {
-        return super.toCSVString() + "," + expirationDate;
+    public void appendCsv(StringBuilder out) {
+        super.appendCsv(out);
+        out.append(',').append(expirationDate);
     }
 
     @Override
@@ -0,0 +1,53 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out product IDs. Lock-free and safe for any number of threads.
+ *
+ * The high-water mark is the highest ID handed out or seen in loaded data;
+ * every new ID is above it. Each Inventory tracks its own mark and stores it
+ * in its snapshots, so IDs of deleted products are not reused after a
+ * restart; the global allocator serves the Product constructors that assign
+ * IDs and is kept above every inventory's mark.
+ */
+public final class IdAllocator {
+    private static final IdAllocator GLOBAL = new IdAllocator();
+
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+
+    /**
+     * Returns the allocator used by the Product constructors that assign IDs.
+     */
+    public static IdAllocator global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Returns a new ID.
+     * @throws IllegalStateException if all positive int IDs are used up.
+     */
+    public int nextId() {
+        while (true) {
+            int current = highWaterMark.get();
+            if (current == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Product IDs exhausted");
+            }
+            if (highWaterMark.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * Makes sure no future ID is at or below the given one, e.g. after
+     * loading products with explicit IDs. Never lowers the mark.
+     */
+    public void advanceTo(int id) {
+        if (id > highWaterMark.get()) {
+            highWaterMark.accumulateAndGet(id, Math::max);
+        }
+    }
+
+    public int getHighWaterMark() {
+        return highWaterMark.get();
+    }
+}
@@ -1,160 +1,1781 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.Supplier;
 
 /**
  * Manages the collection of products in the inventory.
  * Provides methods to add, remove, update, find, and save/load products.
  * Includes logic for graph data.
+ *
+ * Safe for concurrent use. Lookups and aggregates are optimistic reads that
+ * only take the read lock if a write got in their way; mutations hold the
+ * write lock just long enough to change the in-memory structures. Products
+ * handed to or returned by the inventory must not be modified; changes go
+ * through updateProduct. Listeners are notified after the lock is released,
+ * on the thread that made the change.
  */
 public class Inventory {
-    private List<Product> products;
+    /** Low-stock threshold used by the dashboard; always tracked. */
+    public static final int DEFAULT_LOW_STOCK_THRESHOLD = 10;
+
+    /** Journal size (in records) at which saveToFile folds it into a new snapshot. */
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 50_000;
+
+    private final ProductStore store;
+    private final StorageMode storageMode;
+    private final ProductIndex index; // Product ID -> slot in the store
+    // Highest ID this inventory has held, saved with its snapshots
+    private final IdAllocator ids = new IdAllocator();
     private static final String SAVE_FILE = "inventory.csv";
 
+    /** System property selecting the storage mode of Inventory() ("objects" or "columnar"). */
+    public static final String STORAGE_PROPERTY = "inventory.storage";
+
+    /**
+     * How products are held in memory.
+     */
+    public enum StorageMode {
+        /** One Product object per product (see ObjectProductStore). */
+        OBJECTS,
+        /**
+         * Primitive arrays per field and a packed string arena (see ColumnarProductStore).
+         * Far less memory per product; products handed out are detached views.
+         */
+        COLUMNAR
+    }
+
+    /**
+     * On-disk snapshot formats. Both hold the same data and either can be
+     * loaded regardless of the configured one.
+     */
+    public enum SnapshotFormat {
+        /** Human-readable ID,Type,Name,Price,Quantity,SpecificDetail rows. */
+        CSV,
+        /** Fixed-width records plus a string heap, loaded through a memory mapping (see BinarySnapshot). */
+        BINARY
+    }
+
+    private final Path saveFile; // CSV snapshot; the binary one sits next to it as .bin
+    private volatile SnapshotFormat snapshotFormat = SnapshotFormat.CSV;
+    private volatile InventoryJournal journal; // null when journaling is disabled
+    private volatile long compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+    private volatile boolean snapshotStale; // memory no longer equals snapshot + journal
+    // Mutations so far, counted once journaled, and the count the last save covered
+    private final AtomicLong mutationCount = new AtomicLong();
+    private volatile long savedMutationCount;
+    // Products whose state differs from the saved one, by ID (see isDirty). Updated
+    // under the product's write stripe once the change is journaled.
+    private final ConcurrentHashMap<Integer, UnsavedChange> unsavedChanges = new ConcurrentHashMap<>();
+    // mutationCount of the latest change made while too many were tracked, or 0
+    private final AtomicLong untrackedChanges = new AtomicLong();
+
+    /** Changed products tracked one by one; beyond this, every change counts as unsaved until the next save. */
+    static final int MAX_TRACKED_CHANGES = 100_000;
+    private volatile Path loadedSnapshot; // snapshot read by the current streaming load
+
+    /** Rows per block of a CSV snapshot; blocks are formatted in parallel (see writeCsv). */
+    private static final int CSV_BLOCK_ROWS = 1 << 14;
+
+    /** Products per batch handed over by a streaming load of a binary snapshot. */
+    private static final int LOAD_BATCH_SIZE = 16_384;
+
+    // Guards the store, the index and the running aggregates
+    private final StampedLock lock = new StampedLock();
+    // Mutations of one product ID are serialized on its stripe from the change
+    // until its journal record is appended, so records of the same product are
+    // journaled in the order they were applied. Different IDs journal in parallel.
+    private static final int WRITE_STRIPES = 64;
+    private final ReentrantLock[] writeStripes = new ReentrantLock[WRITE_STRIPES];
+    // Serializes saves, compactions and loads against each other
+    private final Object persistenceLock = new Object();
+
+    // Latency of successful operations, from the call until listeners are notified (see Metrics)
+    private static final Metrics.Timer ADD_TIMER = Metrics.global().timer("inventory.add");
+    private static final Metrics.Timer REMOVE_TIMER = Metrics.global().timer("inventory.remove");
+    private static final Metrics.Timer UPDATE_TIMER = Metrics.global().timer("inventory.update");
+    private static final Metrics.Timer ADJUST_TIMER = Metrics.global().timer("inventory.adjust");
+    private static final Metrics.Timer BATCH_TIMER = Metrics.global().timer("inventory.batch");
+    private static final Metrics.Timer QUERY_TIMER = Metrics.global().timer("inventory.query");
+    private static final Metrics.Timer SAVE_TIMER = Metrics.global().timer("inventory.save");
+    private static final Metrics.Timer COMPACT_TIMER = Metrics.global().timer("inventory.compact");
+    private static final Metrics.Timer LOAD_TIMER = Metrics.global().timer("inventory.load");
+    private static final Metrics.Timer IMPORT_TIMER = Metrics.global().timer("inventory.import");
+    private static final LongAdder SNAPSHOTS_TAKEN = Metrics.global().counter("inventory.snapshots.taken");
+    private static final LongAdder SNAPSHOTS_REUSED = Metrics.global().counter("inventory.snapshots.reused");
+
+    // Running aggregates, kept in sync by every mutation. They are computed from
+    // the store's primitive accessors, which hold the values a slot was stored with.
+    private double totalValue;
+    private final Map<String, CategoryStats> categoryStats = new LinkedHashMap<>();
+    private int[] lowStockThresholds = {DEFAULT_LOW_STOCK_THRESHOLD};
+    private long[] lowStockCounts = new long[1];
+    // Products ordered by (quantity, id), for top-N / bottom-N and low-stock rank queries
+    private final SortedLongSet stockRanking = new SortedLongSet();
+    // Groceries ordered by (expiry epoch day, id), for expiry range queries
+    private final SortedLongSet expiryIndex = new SortedLongSet();
+    // Per tracked window w: Groceries expiring before expiryToday + w days (w = 0: expired).
+    // Rolled forward on the first expiry query of a new day.
+    private int expiryToday = clampEpochDay(LocalDate.now());
+    private int[] expiryWindows = {0};
+    private long[] expiryCounts = new long[1];
+    private long[] expiryQuantities = new long[1];
+    private double[] expiryValues = new double[1];
+
+    // Bumped by every change to the store, see getVersion
+    private long version;
+    private volatile InventorySnapshot lastSnapshot;
+
+    private final List<InventoryListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates an inventory persisted to inventory.csv, using the storage mode
+     * named by the inventory.storage system property (objects by default).
+     */
     public Inventory() {
-        products = new ArrayList<>();
+        this(Paths.get(SAVE_FILE), storageModeFromProperty());
+    }
+
+    /**
+     * Creates an inventory persisted to the given snapshot file, with a
+     * journal next to it (inventory.csv -> inventory.journal).
+     */
+    public Inventory(Path saveFile) {
+        this(saveFile, StorageMode.OBJECTS);
+    }
+
+    public Inventory(Path saveFile, StorageMode storageMode) {
+        this.storageMode = storageMode;
+        store = storageMode == StorageMode.COLUMNAR ? new ColumnarProductStore() : new ObjectProductStore();
+        index = new ProductIndex();
+        this.saveFile = saveFile;
+        this.journal = new InventoryJournal(journalPathFor(saveFile));
+        for (int i = 0; i < WRITE_STRIPES; i++) {
+            writeStripes[i] = new ReentrantLock();
+        }
+    }
+
+    static StorageMode storageModeFromProperty() {
+        String mode = System.getProperty(STORAGE_PROPERTY, "objects");
+        try {
+            return StorageMode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown " + STORAGE_PROPERTY + " '" + mode + "', using objects.");
+            return StorageMode.OBJECTS;
+        }
     }
 
+    public StorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    private static Path journalPathFor(Path saveFile) {
+        return withExtension(saveFile, ".journal");
+    }
+
+    private static Path withExtension(Path file, String extension) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return file.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + extension);
+    }
+
+    public SnapshotFormat getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    /**
+     * Selects the format compaction writes snapshots in. An existing snapshot
+     * in the other format is still loaded, and converted on the next save.
+     */
+    public void setSnapshotFormat(SnapshotFormat snapshotFormat) {
+        if (snapshotFormat != this.snapshotFormat) {
+            this.snapshotFormat = snapshotFormat;
+            snapshotStale = true;
+        }
+    }
+
+    /**
+     * Returns where snapshots in the given format are stored
+     * (inventory.csv for CSV, inventory.bin for BINARY).
+     */
+    public Path getSnapshotPath(SnapshotFormat format) {
+        return format == SnapshotFormat.CSV ? saveFile : withExtension(saveFile, ".bin");
+    }
+
+    /**
+     * Returns the mutation journal, or null if journaling is disabled.
+     */
+    public InventoryJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Replaces the mutation journal. Pass null to disable journaling, in which
+     * case saveToFile always writes a full snapshot.
+     */
+    public void setJournal(InventoryJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Sets the journal size (in records) at which saveToFile compacts it.
+     */
+    public void setCompactionThreshold(long compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    public void addInventoryListener(InventoryListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeInventoryListener(InventoryListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Running count and value for one product type.
+     */
+    private static class CategoryStats {
+        long count;
+        double value;
+        final SortedLongSet ids = new SortedLongSet(); // for queries by type
+    }
+
+    // --- LOCKING ---
+
+    /**
+     * Runs a read-only computation as an optimistic read, falling back to the
+     * read lock if a write overlapped it. The computation may see a structure
+     * mid-change and fail or return garbage; both are discarded when the
+     * stamp does not validate.
+     */
+    private <T> T read(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+                // Torn read; retry under the read lock
+            }
+        }
+        return readLocked(reader);
+    }
+
+    /**
+     * Runs a read-only computation under the read lock, for reads that walk
+     * larger structures and are not worth retrying.
+     */
+    private <T> T readLocked(Supplier<T> reader) {
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private ReentrantLock stripeFor(int productId) {
+        return writeStripes[productId & (WRITE_STRIPES - 1)];
+    }
+
+    // --- MUTATIONS ---
+
+    /**
+     * Adds a product to the inventory.
+     * @throws IllegalArgumentException if a product with the same ID already exists.
+     */
     public void addProduct(Product product) {
-        products.add(product);
+        Metrics.Span span = ADD_TIMER.begin();
+        int slot;
+        UnsavedChange saved;
+        ReentrantLock stripe = stripeFor(product.getId());
+        stripe.lock();
+        try {
+            long stamp = lock.writeLock();
+            try {
+                if (index.contains(product.getId())) {
+                    throw new IllegalArgumentException("Product with ID " + product.getId() + " already exists.");
+                }
+                saved = UnsavedChange.NOT_SAVED;
+                slot = insert(product);
+                product = store.get(slot); // the stored view in columnar mode
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            InventoryJournal journal = this.journal;
+            if (journal != null) {
+                journal.recordAdd(product);
+            }
+            trackChange(product.getId(), saved, product, mutationCount.incrementAndGet());
+        } finally {
+            stripe.unlock();
+        }
+        for (InventoryListener listener : listeners) {
+            listener.productAdded(product, slot);
+        }
+        span.end(1);
     }
 
+    /**
+     * Appends a product, indexes it and counts it in, without notifying listeners.
+     * Callers hold the write lock.
+     * @return The slot the product was stored in.
+     */
+    private int insert(Product product) {
+        advanceIds(product.getId());
+        int slot = store.add(product);
+        index.put(product.getId(), slot);
+        countIn(slot);
+        return slot;
+    }
+
+    /**
+     * Removes a product in O(1) by moving the last product into its slot,
+     * so the list stays dense. Product order is not preserved.
+     */
     public void removeProduct(int productId) throws ProductNotFoundException {
-        Product productToRemove = findProductById(productId);
-        products.remove(productToRemove);
+        Metrics.Span span = REMOVE_TIMER.begin();
+        Product removed;
+        int slot;
+        int lastSlot;
+        UnsavedChange saved;
+        ReentrantLock stripe = stripeFor(productId);
+        stripe.lock();
+        try {
+            long stamp = lock.writeLock();
+            try {
+                slot = index.get(productId);
+                if (slot < 0) {
+                    throw notFound(productId);
+                }
+                removed = store.get(slot);
+                saved = savedStateAt(slot);
+                lastSlot = delete(slot);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            InventoryJournal journal = this.journal;
+            if (journal != null) {
+                journal.recordRemove(productId);
+            }
+            trackChange(productId, saved, null, mutationCount.incrementAndGet());
+        } finally {
+            stripe.unlock();
+        }
+        for (InventoryListener listener : listeners) {
+            listener.productRemoved(removed, slot, lastSlot);
+        }
+        span.end(1);
     }
 
+    /**
+     * Removes the product in a slot, moving the last product into it,
+     * without notifying listeners. Callers hold the write lock.
+     * @return The former last slot, which no longer exists.
+     */
+    private int delete(int slot) {
+        countOut(slot);
+        index.remove(store.idAt(slot));
+        int lastSlot = store.size() - 1;
+        if (slot < lastSlot) {
+            index.put(store.idAt(lastSlot), slot);
+        }
+        store.swapRemove(slot);
+        if (store.size() == 0) {
+            totalValue = 0; // Drop any floating-point drift
+        }
+        return lastSlot;
+    }
+
+    /**
+     * Finds a product by ID. The result must not be modified: edit a copy()
+     * and pass it to updateProduct. In columnar storage mode it is a detached view.
+     */
     public Product findProductById(int productId) throws ProductNotFoundException {
-        for (Product product : products) {
-            if (product.getId() == productId) {
-                return product;
-            }
+        Product product = read(() -> {
+            int slot = index.get(productId);
+            return slot < 0 ? null : store.get(slot);
+        });
+        if (product == null) {
+            throw notFound(productId);
         }
-        throw new ProductNotFoundException("Product with ID " + productId + " not found.");
+        return product;
+    }
+
+    public boolean containsProduct(int productId) {
+        return read(() -> index.contains(productId));
     }
-    
+
+    private static ProductNotFoundException notFound(int productId) {
+        return new ProductNotFoundException("Product with ID " + productId + " not found.");
+    }
+
     /**
      * Updates an existing product's details using a new Product object.
-     * This is a cleaner way to update.
+     * The stored product is replaced by a copy of it rather than changed in
+     * place, so snapshots taken earlier keep the old values.
      * @param updatedProduct The product object containing all new data (name, price, qty, specific details).
      * @throws ProductNotFoundException if the product is not found.
      */
     public void updateProduct(Product updatedProduct) throws ProductNotFoundException {
-        Product product = findProductById(updatedProduct.getId());
-        product.setName(updatedProduct.getName());
-        product.setPrice(updatedProduct.getPrice());
-        product.setQuantity(updatedProduct.getQuantity());
-        product.setSpecificDetailObject(updatedProduct.getSpecificDetailObject());
+        Metrics.Span span = UPDATE_TIMER.begin();
+        int productId = updatedProduct.getId();
+        Product product = updatedProduct.copy();
+        int slot;
+        UnsavedChange saved;
+        ReentrantLock stripe = stripeFor(productId);
+        stripe.lock();
+        try {
+            long stamp = lock.writeLock();
+            try {
+                slot = index.get(productId);
+                if (slot < 0) {
+                    throw notFound(productId);
+                }
+                saved = savedStateAt(slot);
+                countOut(slot);
+                store.set(slot, product);
+                countIn(slot);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            InventoryJournal journal = this.journal;
+            if (journal != null) {
+                journal.recordUpdate(product);
+            }
+            trackChange(productId, saved, product, mutationCount.incrementAndGet());
+        } finally {
+            stripe.unlock();
+        }
+        for (InventoryListener listener : listeners) {
+            listener.productUpdated(product, slot);
+        }
+        span.end(1);
+    }
+
+    /**
+     * Changes a product's quantity by a delta, atomically with respect to
+     * other changes of the same product, so concurrent stock adjustments
+     * (e.g. sales from several terminals) are never lost.
+     * @return The product as stored after the change.
+     * @throws ProductNotFoundException if the product is not found.
+     * @throws IllegalArgumentException if the quantity would become negative or overflow.
+     */
+    public Product adjustQuantity(int productId, int delta) throws ProductNotFoundException {
+        Metrics.Span span = ADJUST_TIMER.begin();
+        Product product;
+        int slot;
+        UnsavedChange saved;
+        ReentrantLock stripe = stripeFor(productId);
+        stripe.lock();
+        try {
+            long stamp = lock.writeLock();
+            try {
+                slot = index.get(productId);
+                if (slot < 0) {
+                    throw notFound(productId);
+                }
+                long quantity = (long) store.quantityAt(slot) + delta;
+                if (quantity < 0 || quantity > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Quantity of product " + productId + " would become "
+                            + quantity + ".");
+                }
+                saved = savedStateAt(slot);
+                product = store.get(slot).copy();
+                product.setQuantity((int) quantity);
+                countOut(slot);
+                store.set(slot, product);
+                countIn(slot);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            InventoryJournal journal = this.journal;
+            if (journal != null) {
+                journal.recordUpdate(product);
+            }
+            trackChange(productId, saved, product, mutationCount.incrementAndGet());
+        } finally {
+            stripe.unlock();
+        }
+        for (InventoryListener listener : listeners) {
+            listener.productUpdated(product, slot);
+        }
+        span.end(1);
+        return product;
+    }
+
+    // --- BULK MUTATIONS ---
+
+    /**
+     * Adds many products as one batch (see applyBatch).
+     * @throws IllegalArgumentException if an ID already exists or repeats; nothing is added then.
+     */
+    public void addAll(Collection<? extends Product> products) {
+        List<Mutation> batch = new ArrayList<>(products.size());
+        for (Product product : products) {
+            batch.add(Mutation.add(product));
+        }
+        try {
+            applyBatch(batch);
+        } catch (ProductNotFoundException e) {
+            throw new IllegalStateException(e); // Adds never look up existing products
+        }
+    }
+
+    /**
+     * Removes many products as one batch (see applyBatch).
+     * @throws ProductNotFoundException if an ID is missing; nothing is removed then.
+     */
+    public void removeAll(Collection<Integer> productIds) throws ProductNotFoundException {
+        List<Mutation> batch = new ArrayList<>(productIds.size());
+        for (int productId : productIds) {
+            batch.add(Mutation.remove(productId));
+        }
+        applyBatch(batch);
+    }
+
+    /**
+     * Merges products into the inventory as one batch (see applyBatch):
+     * products whose ID exists replace the stored one, the others are added.
+     * A later product with the same ID replaces an earlier one.
+     * @throws ProductNotFoundException if a product was removed concurrently; nothing is merged then.
+     */
+    public void mergeAll(Collection<? extends Product> products) throws ProductNotFoundException {
+        List<Mutation> batch = new ArrayList<>(products.size());
+        Set<Integer> added = new HashSet<>();
+        for (Product product : products) {
+            boolean exists = added.contains(product.getId()) || containsProduct(product.getId());
+            batch.add(exists ? Mutation.update(product) : Mutation.add(product));
+            added.add(product.getId());
+        }
+        applyBatch(batch);
+    }
+
+    /**
+     * Applies adds, updates and removes in order, all or nothing. The batch
+     * is validated first, then applied in one pass under a single write lock
+     * with the store and index presized for the adds, and listeners get one
+     * notification for the whole batch: productsAdded if it only added
+     * products, inventoryChanged otherwise.
+     * @throws IllegalArgumentException if an add reuses an existing ID or a product type cannot be stored.
+     * @throws ProductNotFoundException if an update or removal targets a missing ID.
+     */
+    public void applyBatch(List<Mutation> mutations) throws ProductNotFoundException {
+        if (mutations.isEmpty()) {
+            return;
+        }
+        Metrics.Span span = BATCH_TIMER.begin();
+        // Updates store copies, as updateProduct does, so snapshots keep old values
+        Product[] updates = new Product[mutations.size()];
+        UnsavedChange[] saved = new UnsavedChange[mutations.size()];
+        for (int i = 0; i < updates.length; i++) {
+            Mutation mutation = mutations.get(i);
+            if (mutation.getKind() == Mutation.Kind.UPDATE) {
+                updates[i] = mutation.getProduct().copy();
+            }
+        }
+        boolean addsOnly;
+        int firstRow;
+        int lastRow;
+        // A batch can touch any ID, so it takes every stripe (in order, before the write lock)
+        for (ReentrantLock stripe : writeStripes) {
+            stripe.lock();
+        }
+        try {
+            long stamp = lock.writeLock();
+            try {
+                int adds = validate(mutations);
+                addsOnly = adds == mutations.size();
+                firstRow = store.size();
+                ensureCapacity(store.size() + adds);
+                for (int i = 0; i < updates.length; i++) {
+                    Mutation mutation = mutations.get(i);
+                    switch (mutation.getKind()) {
+                        case ADD:
+                            saved[i] = UnsavedChange.NOT_SAVED;
+                            insert(mutation.getProduct());
+                            break;
+                        case UPDATE: {
+                            int slot = index.get(mutation.getProductId());
+                            saved[i] = savedStateAt(slot);
+                            countOut(slot);
+                            store.set(slot, updates[i]);
+                            countIn(slot);
+                            break;
+                        }
+                        default: {
+                            int slot = index.get(mutation.getProductId());
+                            saved[i] = savedStateAt(slot);
+                            delete(slot);
+                            break;
+                        }
+                    }
+                }
+                lastRow = store.size() - 1;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            InventoryJournal journal = this.journal;
+            if (journal != null) {
+                for (int i = 0; i < updates.length; i++) {
+                    Mutation mutation = mutations.get(i);
+                    switch (mutation.getKind()) {
+                        case ADD: journal.recordAdd(mutation.getProduct()); break;
+                        case UPDATE: journal.recordUpdate(updates[i]); break;
+                        default: journal.recordRemove(mutation.getProductId()); break;
+                    }
+                }
+            }
+            long sequence = mutationCount.addAndGet(mutations.size());
+            // In order, so a product changed twice keeps the saved state from before the first change
+            for (int i = 0; i < updates.length; i++) {
+                Mutation mutation = mutations.get(i);
+                switch (mutation.getKind()) {
+                    case ADD: trackChange(mutation.getProductId(), saved[i], mutation.getProduct(), sequence); break;
+                    case UPDATE: trackChange(mutation.getProductId(), saved[i], updates[i], sequence); break;
+                    default: trackChange(mutation.getProductId(), saved[i], null, sequence); break;
+                }
+            }
+        } finally {
+            for (int i = writeStripes.length - 1; i >= 0; i--) {
+                writeStripes[i].unlock();
+            }
+        }
+        for (InventoryListener listener : listeners) {
+            if (addsOnly) {
+                listener.productsAdded(firstRow, lastRow);
+            } else {
+                listener.inventoryChanged();
+            }
+        }
+        span.end(mutations.size());
+    }
+
+    /**
+     * Checks a batch against the current contents, following the IDs it
+     * adds and removes along the way. Callers hold the write lock.
+     * @return The number of adds.
+     */
+    private int validate(List<Mutation> mutations) throws ProductNotFoundException {
+        ProductIndex changed = new ProductIndex(); // ID -> 1 if present after the mutations so far, 0 if not
+        changed.ensureCapacity(mutations.size());
+        int adds = 0;
+        for (Mutation mutation : mutations) {
+            int productId = mutation.getProductId();
+            int present = changed.get(productId);
+            boolean exists = present >= 0 ? present == 1 : index.contains(productId);
+            if (mutation.getKind() == Mutation.Kind.ADD) {
+                if (exists) {
+                    throw new IllegalArgumentException("Product with ID " + productId + " already exists.");
+                }
+                changed.put(productId, 1);
+                adds++;
+            } else if (!exists) {
+                throw notFound(productId);
+            } else if (mutation.getKind() == Mutation.Kind.REMOVE) {
+                changed.put(productId, 0);
+            }
+            if (mutation.getProduct() != null && storageMode == StorageMode.COLUMNAR) {
+                ProductStore.typeTag(mutation.getProduct()); // throws for types the store cannot hold
+            }
+        }
+        return adds;
     }
 
+    /**
+     * Returns all products as a read-only snapshot; see snapshot().
+     */
     public List<Product> getAllProducts() {
-        return new ArrayList<>(products);
+        return snapshot();
+    }
+
+    /**
+     * Returns a consistent, read-only view of all products as they are now,
+     * in row order. Nothing is copied: the snapshot shares the store's chunks,
+     * and the store copies a chunk only when it is next written. Taking one
+     * holds the write lock for O(size / 4096) steps, and while the inventory
+     * is unchanged the same snapshot is handed out again. Iterating it never
+     * blocks writers, and later changes do not show up in it. Used by save
+     * and export.
+     */
+    public InventorySnapshot snapshot() {
+        InventorySnapshot cached = lastSnapshot;
+        if (cached != null && cached.getVersion() == getVersion()) {
+            SNAPSHOTS_REUSED.increment();
+            return cached;
+        }
+        long stamp = lock.writeLock(); // snapshot() starts a new copy-on-write epoch in the store
+        try {
+            cached = lastSnapshot;
+            if (cached == null || cached.getVersion() != version) {
+                cached = new InventorySnapshot(store.snapshot(), version);
+                lastSnapshot = cached;
+                SNAPSHOTS_TAKEN.increment();
+            } else {
+                SNAPSHOTS_REUSED.increment();
+            }
+            return cached;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns a number that increases with every change to the products, so
+     * that consumers can skip work when it is the same as last time.
+     */
+    public long getVersion() {
+        return read(() -> version);
+    }
+
+    /**
+     * Returns the product at the given row (position in the product list).
+     * Rows are stable until the next removal, which moves the last product
+     * into the removed row.
+     */
+    public Product getProductAt(int row) {
+        return read(() -> store.get(row));
+    }
+
+    // Single-field row accessors: in columnar mode they read one column
+    // instead of building a whole product view.
+
+    public int getIdAt(int row) {
+        return read(() -> store.idAt(row));
+    }
+
+    public String getNameAt(int row) {
+        return read(() -> store.nameAt(row));
+    }
+
+    public String getTypeAt(int row) {
+        return read(() -> store.typeAt(row));
+    }
+
+    public double getPriceAt(int row) {
+        return read(() -> store.priceAt(row));
+    }
+
+    public int getQuantityAt(int row) {
+        return read(() -> store.quantityAt(row));
+    }
+
+    /**
+     * Returns the specific detail text of a row (see Product.getSpecificDetail)
+     * without building the product.
+     */
+    public String getSpecificDetailAt(int row) {
+        return read(() -> store.detailAt(row));
+    }
+
+    /**
+     * Returns the number of products without copying the list.
+     */
+    public int size() {
+        return read(store::size);
+    }
+
+    // --- RUNNING AGGREGATES ---
+    // Callers of the private helpers below hold the write lock.
+
+    /**
+     * Adds the values stored in a slot to the running aggregates.
+     */
+    private void countIn(int slot) {
+        version++;
+        int quantity = store.quantityAt(slot);
+        stockRanking.add(stockKey(quantity, store.idAt(slot)));
+        int expiryDay = store.expiryDayAt(slot);
+        double value = store.priceAt(slot) * quantity;
+        if (expiryDay != Groceries.NO_EXPIRY) {
+            expiryIndex.add(stockKey(expiryDay, store.idAt(slot)));
+            countExpiry(expiryDay, quantity, value, 1);
+        }
+
+        totalValue += value;
+        CategoryStats stats = categoryStats.computeIfAbsent(store.typeAt(slot), k -> new CategoryStats());
+        stats.count++;
+        stats.value += value;
+        stats.ids.add(store.idAt(slot));
+        for (int i = 0; i < lowStockThresholds.length; i++) {
+            if (quantity <= lowStockThresholds[i]) {
+                lowStockCounts[i]++;
+            }
+        }
+    }
+
+    /**
+     * Removes the values stored in a slot from the running aggregates.
+     */
+    private void countOut(int slot) {
+        version++;
+        int quantity = store.quantityAt(slot);
+        double value = store.priceAt(slot) * quantity;
+        stockRanking.remove(stockKey(quantity, store.idAt(slot)));
+        int expiryDay = store.expiryDayAt(slot);
+        if (expiryDay != Groceries.NO_EXPIRY) {
+            expiryIndex.remove(stockKey(expiryDay, store.idAt(slot)));
+            countExpiry(expiryDay, quantity, value, -1);
+        }
+        totalValue -= value;
+        String type = store.typeAt(slot);
+        CategoryStats stats = categoryStats.get(type);
+        if (--stats.count == 0) {
+            categoryStats.remove(type);
+        } else {
+            stats.value -= value;
+            stats.ids.remove(store.idAt(slot));
+        }
+        for (int i = 0; i < lowStockThresholds.length; i++) {
+            if (quantity <= lowStockThresholds[i]) {
+                lowStockCounts[i]--;
+            }
+        }
+    }
+
+    /**
+     * Presizes the store and index for the given number of products.
+     */
+    private void ensureCapacity(int capacity) {
+        store.ensureCapacity(capacity);
+        index.ensureCapacity(capacity);
+    }
+
+    /**
+     * Packs (quantity, id) into one long that sorts by quantity, then by id.
+     * The expiry index packs (epoch day, id) the same way.
+     */
+    static long stockKey(int quantity, int id) {
+        return ((long) quantity << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    static int idOfStockKey(long key) {
+        return (int) key;
+    }
+
+    private void resetAggregates() {
+        version++;
+        totalValue = 0;
+        stockRanking.clear();
+        expiryIndex.clear();
+        categoryStats.clear();
+        Arrays.fill(lowStockCounts, 0);
+        Arrays.fill(expiryCounts, 0);
+        Arrays.fill(expiryQuantities, 0);
+        Arrays.fill(expiryValues, 0);
+    }
+
+    /**
+     * Adds (sign 1) or removes (sign -1) a product expiring on the given day
+     * from the tracked expiry windows it falls in.
+     */
+    private void countExpiry(int expiryDay, int quantity, double value, int sign) {
+        for (int i = 0; i < expiryWindows.length; i++) {
+            if (expiryDay < expiryCutoff(expiryToday, expiryWindows[i])) {
+                expiryCounts[i] += sign;
+                expiryQuantities[i] += sign * (long) quantity;
+                expiryValues[i] += sign * value;
+            }
+        }
+    }
+
+    /**
+     * First epoch day after an expiry window of the given days, counted from today.
+     */
+    private static int expiryCutoff(int today, int window) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) today + window);
+    }
+
+    /**
+     * Adds (sign 1) or removes (sign -1) the Groceries expiring on days
+     * [fromDay, toDay) to or from tracked expiry window i.
+     */
+    private void countExpiring(int i, int fromDay, int toDay, int sign) {
+        long toKey = stockKey(toDay, 0);
+        expiryIndex.forEachFrom(stockKey(fromDay, 0), key -> {
+            if (key >= toKey) {
+                return false;
+            }
+            int slot = index.get(idOfStockKey(key));
+            int quantity = store.quantityAt(slot);
+            expiryCounts[i] += sign;
+            expiryQuantities[i] += sign * (long) quantity;
+            expiryValues[i] += sign * store.priceAt(slot) * quantity;
+            return true;
+        });
+    }
+
+    /**
+     * Moves the tracked expiry windows to today, if the date changed since
+     * they were last moved. Walks only the Groceries expiring on the days
+     * between, so normally one day's worth once a day.
+     */
+    private void rollExpiryWindows() {
+        int today = clampEpochDay(LocalDate.now());
+        if (read(() -> expiryToday) == today) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < expiryWindows.length; i++) {
+                int from = expiryCutoff(expiryToday, expiryWindows[i]);
+                int to = expiryCutoff(today, expiryWindows[i]);
+                if (to > from) {
+                    countExpiring(i, from, to, 1);
+                } else if (to < from) {
+                    countExpiring(i, to, from, -1);
+                }
+            }
+            expiryToday = today;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Starts maintaining running totals of the Groceries expiring from today
+     * through the given number of days from now, so that
+     * getExpiringWithin(days, limit) only walks the products it lists.
+     */
+    public void trackExpiringWithin(int days) {
+        if (days < 0 || days == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid number of days: " + days);
+        }
+        rollExpiryWindows();
+        long stamp = lock.writeLock();
+        try {
+            int window = days + 1;
+            if (indexOfExpiryWindow(window) >= 0) {
+                return;
+            }
+            int n = expiryWindows.length;
+            expiryWindows = Arrays.copyOf(expiryWindows, n + 1);
+            expiryCounts = Arrays.copyOf(expiryCounts, n + 1);
+            expiryQuantities = Arrays.copyOf(expiryQuantities, n + 1);
+            expiryValues = Arrays.copyOf(expiryValues, n + 1);
+            expiryWindows[n] = window;
+            countExpiring(n, Groceries.NO_EXPIRY + 1, expiryCutoff(expiryToday, window), 1);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private int indexOfExpiryWindow(int window) {
+        for (int i = 0; i < expiryWindows.length; i++) {
+            if (expiryWindows[i] == window) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Starts maintaining a running low-stock count for the given threshold,
+     * so that getLowStockCount(threshold) becomes O(1).
+     */
+    public void trackLowStockThreshold(int threshold) {
+        long stamp = lock.writeLock();
+        try {
+            for (int tracked : lowStockThresholds) {
+                if (tracked == threshold) return;
+            }
+            int n = lowStockThresholds.length;
+            int[] thresholds = Arrays.copyOf(lowStockThresholds, n + 1);
+            long[] counts = Arrays.copyOf(lowStockCounts, n + 1);
+            thresholds[n] = threshold;
+            counts[n] = countAtOrBelow(threshold);
+            lowStockThresholds = thresholds;
+            lowStockCounts = counts;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Rank query on the stock ranking: products with quantity <= threshold.
+     */
+    private long countAtOrBelow(int threshold) {
+        if (threshold == Integer.MAX_VALUE) {
+            return store.size();
+        }
+        return stockRanking.countLessThan(stockKey(threshold + 1, 0));
     }
 
     // --- DASHBOARD & GRAPH METHODS ---
 
     public double getTotalInventoryValue() {
-        return products.stream()
-                       .mapToDouble(p -> p.getPrice() * p.getQuantity())
-                       .sum();
+        return read(() -> totalValue);
     }
 
+    /**
+     * Counts products with quantity at or below the threshold.
+     * O(1) for tracked thresholds, a rank query on the stock ranking otherwise.
+     */
     public long getLowStockCount(int threshold) {
-        return products.stream()
-                       .filter(p -> p.getQuantity() <= threshold)
-                       .count();
+        return read(() -> {
+            int[] thresholds = lowStockThresholds;
+            long[] counts = lowStockCounts;
+            for (int i = 0; i < thresholds.length; i++) {
+                if (thresholds[i] == threshold) {
+                    return counts[i];
+                }
+            }
+            return countAtOrBelow(threshold);
+        });
     }
 
     /**
      * Gets a map of product counts by their type (for Pie Chart).
      */
     public Map<String, Long> getCategoryCounts() {
-        return products.stream()
-                       .collect(Collectors.groupingBy(Product::getType, Collectors.counting()));
+        return readLocked(() -> {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (Map.Entry<String, CategoryStats> entry : categoryStats.entrySet()) {
+                counts.put(entry.getKey(), entry.getValue().count);
+            }
+            return counts;
+        });
+    }
+
+    /**
+     * Gets a map of total stock value (price * quantity) by product type.
+     */
+    public Map<String, Double> getCategoryValues() {
+        return readLocked(() -> {
+            Map<String, Double> values = new LinkedHashMap<>();
+            for (Map.Entry<String, CategoryStats> entry : categoryStats.entrySet()) {
+                values.put(entry.getKey(), entry.getValue().value);
+            }
+            return values;
+        });
     }
 
     /**
      * Gets a list of the top N most stocked products (for Bar Chart).
+     * Walks the stock ranking from the top, so it costs O(log n + N).
      * @param n The number of products to return.
      * @return A list of the top N products, sorted by quantity descending.
      */
     public List<Product> getTopNStockedProducts(int n) {
-        return products.stream()
-                       .sorted(Comparator.comparingInt(Product::getQuantity).reversed())
-                       .limit(n)
-                       .collect(Collectors.toList());
+        return readLocked(() -> {
+            List<Product> result = new ArrayList<>(Math.max(0, Math.min(n, store.size())));
+            if (n > 0) {
+                stockRanking.forEachDescending(key -> {
+                    result.add(store.get(index.get(idOfStockKey(key))));
+                    return result.size() < n;
+                });
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Gets a list of the N least stocked products.
+     * @param n The number of products to return.
+     * @return A list of the bottom N products, sorted by quantity ascending.
+     */
+    public List<Product> getBottomNStockedProducts(int n) {
+        return readLocked(() -> {
+            List<Product> result = new ArrayList<>(Math.max(0, Math.min(n, store.size())));
+            if (n > 0) {
+                stockRanking.forEachAscending(key -> {
+                    result.add(store.get(index.get(idOfStockKey(key))));
+                    return result.size() < n;
+                });
+            }
+            return result;
+        });
+    }
+
+    // --- EXPIRY QUERIES ---
+
+    /**
+     * Finds the Groceries expiring between two dates, soonest first. Walks
+     * the expiry index from the first date, so it costs O(log n + k) for k
+     * matching products; expiration dates are parsed once, when stored.
+     * Products without a valid YYYY-MM-DD date are never included.
+     * @param from First day, or null for no lower bound.
+     * @param to Last day (inclusive).
+     * @param limit Maximum number of products in the report; the count and totals cover every match.
+     */
+    public ExpiryReport getExpiringBetween(LocalDate from, LocalDate to, int limit) {
+        long fromKey = from == null ? Long.MIN_VALUE : stockKey(clampEpochDay(from), 0);
+        long toKey = stockKey(clampEpochDay(to), 0) + (1L << 32); // first key after the last day
+        return readLocked(() -> {
+            int[] count = new int[1];
+            long[] totalQuantity = new long[1];
+            double[] totalValue = new double[1];
+            List<Product> products = new ArrayList<>(Math.max(0, Math.min(limit, 64)));
+            expiryIndex.forEachFrom(fromKey, key -> {
+                if (key >= toKey) {
+                    return false;
+                }
+                int slot = index.get(idOfStockKey(key));
+                int quantity = store.quantityAt(slot);
+                count[0]++;
+                totalQuantity[0] += quantity;
+                totalValue[0] += store.priceAt(slot) * quantity;
+                if (products.size() < limit) {
+                    products.add(store.get(slot));
+                }
+                return true;
+            });
+            return new ExpiryReport(from, to, count[0], totalQuantity[0], totalValue[0], products);
+        });
+    }
+
+    /**
+     * Finds the Groceries expiring from today through the given number of days from now.
+     * Reads the running totals if the window is tracked (see trackExpiringWithin),
+     * so it only walks the listed products; walks every match otherwise.
+     */
+    public ExpiryReport getExpiringWithin(int days, int limit) {
+        rollExpiryWindows();
+        ExpiryReport report = readLocked(() -> {
+            int window = days == Integer.MAX_VALUE ? -1 : indexOfExpiryWindow(days + 1);
+            if (window < 0) {
+                return null;
+            }
+            LocalDate today = LocalDate.ofEpochDay(expiryToday);
+            return new ExpiryReport(today, today.plusDays(days),
+                    (int) (expiryCounts[window] - expiryCounts[0]),
+                    expiryQuantities[window] - expiryQuantities[0],
+                    expiryValues[window] - expiryValues[0],
+                    firstExpiring(expiryToday, expiryCutoff(expiryToday, expiryWindows[window]), limit));
+        });
+        if (report != null) {
+            return report;
+        }
+        LocalDate today = LocalDate.now();
+        return getExpiringBetween(today, today.plusDays(days), limit);
+    }
+
+    /**
+     * Finds the Groceries whose expiration date has passed. The count and
+     * totals are kept running, so it only walks the listed products.
+     */
+    public ExpiryReport getExpired(int limit) {
+        rollExpiryWindows();
+        return readLocked(() -> new ExpiryReport(null, LocalDate.ofEpochDay(expiryToday).minusDays(1),
+                (int) expiryCounts[0], expiryQuantities[0], expiryValues[0],
+                firstExpiring(Groceries.NO_EXPIRY + 1, expiryToday, limit)));
+    }
+
+    /**
+     * Returns up to limit Groceries expiring on days [fromDay, toDay),
+     * soonest first. Callers hold the read lock.
+     */
+    private List<Product> firstExpiring(int fromDay, int toDay, int limit) {
+        List<Product> products = new ArrayList<>(Math.max(0, Math.min(limit, 64)));
+        if (limit <= 0) {
+            return products;
+        }
+        long toKey = stockKey(toDay, 0);
+        expiryIndex.forEachFrom(stockKey(fromDay, 0), key -> {
+            if (key >= toKey) {
+                return false;
+            }
+            products.add(store.get(index.get(idOfStockKey(key))));
+            return products.size() < limit;
+        });
+        return products;
+    }
+
+    /**
+     * Converts a date to an epoch day that fits the expiry index, above Groceries.NO_EXPIRY.
+     */
+    static int clampEpochDay(LocalDate date) {
+        return (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE - 1, date.toEpochDay()));
+    }
+
+    // --- AD-HOC QUERIES ---
+
+    /**
+     * Runs an ad-hoc query. The planner picks the cheapest of the ID index,
+     * the category, quantity and expiry indexes or a full scan (see
+     * QueryPlanner) and tests products on their stored primitive values, so
+     * only the returned rows are materialized.
+     */
+    public QueryResult query(ProductQuery query) {
+        Metrics.Span span = QUERY_TIMER.begin();
+        QueryResult result = readLocked(() -> {
+            SortedLongSet typeIds = null;
+            if (query.type != null) {
+                CategoryStats stats = categoryStats.get(query.type);
+                typeIds = stats != null ? stats.ids : new SortedLongSet();
+            }
+            return new QueryPlanner(store, index, stockRanking, expiryIndex, typeIds).execute(query);
+        });
+        span.end(result.size());
+        return result;
+    }
+
+    /**
+     * Tests the product at a row against the conditions of a query, ignoring
+     * its order, limit and fields. Used by the table's row filter.
+     */
+    public boolean matchesAt(int row, ProductQuery query) {
+        return read(() -> query.matches(store, row));
     }
 
     // --- DATA PERSISTENCE (SAVING/LOADING) ---
 
     /**
-     * Saves the current inventory to a CSV file.
+     * Returns true if saveToFile has something to persist: products whose
+     * state differs from the saved one, or contents that differ from the
+     * snapshot file (after an import, or a load from a snapshot in the other
+     * format). Changes are tracked per product, so a change that was undone,
+     * e.g. a quantity set back to its saved value, leaves nothing to save,
+     * unless the journal already wrote part of it (see
+     * InventoryJournal.hasUncommittedWrites). The journal records of such a
+     * change stay buffered and are committed with the next save; replaying
+     * them nets out. Cheap and lock-free; see AutoSaver.
+     */
+    public boolean isDirty() {
+        InventoryJournal journal = this.journal;
+        return !unsavedChanges.isEmpty() || untrackedChanges.get() != 0 || snapshotStale
+                || (journal != null && journal.hasUncommittedWrites());
+    }
+
+    /**
+     * Returns the number of mutations (adds, updates and removals, counting
+     * every mutation of a batch) that the last save did not cover.
+     */
+    public long getUnsavedMutationCount() {
+        return mutationCount.get() - savedMutationCount;
+    }
+
+    /**
+     * The saved state of a product with unsaved changes.
+     */
+    private static final class UnsavedChange {
+        /** Saved state of a product added since the last save. */
+        static final UnsavedChange NOT_SAVED = new UnsavedChange(null, 0);
+
+        final boolean savedStateKnown; // false once a save ran during the changes
+        final Product saved; // null if the product was not saved
+        final long sequence; // mutationCount after the latest change
+
+        UnsavedChange(Product saved, long sequence) {
+            this(true, saved, sequence);
+        }
+
+        private UnsavedChange(boolean savedStateKnown, Product saved, long sequence) {
+            this.savedStateKnown = savedStateKnown;
+            this.saved = saved;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Captures the saved state of the product in a slot before it changes.
+     * Callers hold the write lock.
+     */
+    private UnsavedChange savedStateAt(int slot) {
+        if (untrackedChanges.get() != 0 || unsavedChanges.containsKey(store.idAt(slot))) {
+            return null; // Already known, or not needed
+        }
+        return new UnsavedChange(store.get(slot), 0);
+    }
+
+    /**
+     * Records a journaled change of a product. Callers hold the product's write stripe.
+     * @param saved Saved state captured before the change (null if none was captured).
+     * @param current The product as stored now, or null if it was removed.
+     */
+    private void trackChange(int productId, UnsavedChange saved, Product current, long sequence) {
+        if (untrackedChanges.get() != 0) {
+            untrackedChanges.accumulateAndGet(sequence, Math::max);
+            return;
+        }
+        unsavedChanges.compute(productId, (id, change) -> {
+            UnsavedChange before = change != null ? change : saved;
+            boolean known = before != null && before.savedStateKnown;
+            if (known && sameState(before.saved, current)) {
+                return null; // Back to the saved state
+            }
+            if (change == null && unsavedChanges.size() >= MAX_TRACKED_CHANGES) {
+                untrackedChanges.accumulateAndGet(sequence, Math::max);
+                return null;
+            }
+            return new UnsavedChange(known, known ? before.saved : null, sequence);
+        });
+    }
+
+    private static boolean sameState(Product a, Product b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.getClass() == b.getClass() && Objects.equals(a.getName(), b.getName())
+                && Double.compare(a.getPrice(), b.getPrice()) == 0 && a.getQuantity() == b.getQuantity()
+                && Objects.equals(a.getSpecificDetail(), b.getSpecificDetail());
+    }
+
+    /**
+     * Drops the changes a save covered: those journaled before it started.
+     * Products changed again since then stay unsaved, without a known saved
+     * state, so undoing those changes does not make them look saved.
+     */
+    private void forgetSavedChanges(long saving) {
+        for (Map.Entry<Integer, UnsavedChange> entry : unsavedChanges.entrySet()) {
+            UnsavedChange change = entry.getValue();
+            if (change.sequence <= saving) {
+                unsavedChanges.remove(entry.getKey(), change);
+            } else if (change.savedStateKnown) {
+                unsavedChanges.replace(entry.getKey(), change, new UnsavedChange(false, null, change.sequence));
+            }
+        }
+        untrackedChanges.getAndUpdate(sequence -> sequence <= saving ? 0 : sequence);
+    }
+
+    /**
+     * Persists the inventory. With journaling enabled this commits the
+     * pending journal records, and folds the journal into a new snapshot
+     * once it reaches the compaction threshold (or if the snapshot is missing
+     * or out of date). Without a journal it writes a full snapshot.
+     * Safe to call from a background thread while the inventory is in use.
      * @throws IOException if a file writing error occurs.
      */
     public void saveToFile() throws IOException {
-        try (PrintWriter out = new PrintWriter(new FileWriter(SAVE_FILE))) {
-            out.println("ID,Type,Name,Price,Quantity,SpecificDetail");
-            for (Product product : products) {
-                out.println(product.toCSVString());
+        synchronized (persistenceLock) {
+            Metrics.Span span = SAVE_TIMER.begin();
+            long saving = mutationCount.get(); // their records are in the journal or the snapshot
+            InventoryJournal journal = this.journal;
+            if (journal == null) {
+                compact();
+            } else {
+                journal.commit();
+                if (journal.getRecordCount() >= compactionThreshold || snapshotStale
+                        || !Files.exists(getSnapshotPath(snapshotFormat))) {
+                    compact();
+                }
+            }
+            savedMutationCount = Math.max(savedMutationCount, saving);
+            forgetSavedChanges(saving);
+            span.end(size());
+        }
+    }
+
+    /**
+     * Writes a new snapshot in the configured format and discards the journal
+     * records it contains. New mutations keep going to a fresh journal while
+     * the snapshot is written.
+     * @throws IOException if a file writing error occurs.
+     */
+    public void compact() throws IOException {
+        synchronized (persistenceLock) {
+            Metrics.Span span = COMPACT_TIMER.begin();
+            long saving = mutationCount.get();
+            // Rotate first: every rotated record was applied in memory before it
+            // was journaled, so the snapshot taken afterwards is guaranteed to contain it
+            InventoryJournal journal = this.journal;
+            if (journal != null) {
+                journal.rotate();
+            }
+            SnapshotFormat format = snapshotFormat;
+            InventorySnapshot snapshot = snapshot();
+            writeSnapshot(getSnapshotPath(format), snapshot, format);
+            snapshotStale = false; // only once written, so a failed compaction is retried
+            if (journal != null) {
+                journal.finishRotation();
+            }
+            savedMutationCount = Math.max(savedMutationCount, saving);
+            forgetSavedChanges(saving);
+            span.end(snapshot.size());
+        }
+    }
+
+    /**
+     * Writes the current products to a snapshot file in the given format,
+     * for example to convert between CSV and binary. Does not touch the journal.
+     * @throws IOException if a file writing error occurs.
+     */
+    public void exportTo(Path file, SnapshotFormat format) throws IOException {
+        writeSnapshot(file, snapshot(), format);
+    }
+
+    /**
+     * Replaces the inventory contents with a snapshot file in either format.
+     * The import is not journaled; the next saveToFile writes a full snapshot.
+     * @throws IOException if a file reading error occurs.
+     */
+    public void importFrom(Path file) throws IOException {
+        synchronized (persistenceLock) {
+            try {
+                Metrics.Span span = IMPORT_TIMER.begin();
+                clearProducts();
+                advanceIds(readSnapshotBatches(file, this::insertBatch, progress -> { }));
+                snapshotStale = true;
+                span.end(size());
+            } finally {
+                for (InventoryListener listener : listeners) {
+                    listener.inventoryChanged();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads every product in a snapshot file of either format, without
+     * changing any inventory. Used to merge files in with applyBatch.
+     * @throws IOException if a file reading error occurs.
+     */
+    public static List<Product> readProducts(Path file) throws IOException {
+        List<Product> products = new ArrayList<>();
+        readSnapshotBatches(file, products::addAll, progress -> { });
+        return products;
+    }
+
+    /**
+     * Writes products to a snapshot file through a temporary file that is
+     * then atomically renamed, so a crash never leaves a half-written snapshot.
+     * The snapshot also records this inventory's ID high-water mark, read after
+     * the snapshot was taken so it covers every product in it.
+     */
+    private void writeSnapshot(Path file, InventorySnapshot snapshot, SnapshotFormat format) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        int maxId = ids.getHighWaterMark();
+        if (format == SnapshotFormat.BINARY) {
+            BinarySnapshot.write(temp, snapshot, maxId);
+        } else {
+            writeCsv(temp, snapshot, maxId);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes the rows from the snapshot's stored fields, so no product or
+     * string is built per row. Blocks of rows are formatted and encoded in
+     * parallel on the common ForkJoinPool while this thread writes the
+     * finished blocks in order; a few blocks per core are in flight at most.
+     */
+    private static void writeCsv(Path file, InventorySnapshot snapshot, int maxId) throws IOException {
+        String newline = System.lineSeparator();
+        int inFlight = 2 * Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+        ArrayDeque<ForkJoinTask<byte[]>> blocks = new ArrayDeque<>();
+        try (OutputStream out = Files.newOutputStream(file)) {
+            // The extra header field keeps the high-water mark; loaders skip the header row
+            out.write(("ID,Type,Name,Price,Quantity,SpecificDetail," + CsvChunkLoader.MAX_ID_FIELD + maxId + newline)
+                    .getBytes(StandardCharsets.UTF_8));
+            for (int from = 0, count = snapshot.size(); from < count; from += CSV_BLOCK_ROWS) {
+                int first = from;
+                int last = Math.min(count, from + CSV_BLOCK_ROWS);
+                blocks.add(ForkJoinPool.commonPool().submit(() -> formatCsv(snapshot, first, last, newline)));
+                if (blocks.size() >= inFlight) {
+                    out.write(blocks.poll().join());
+                }
+            }
+            while (!blocks.isEmpty()) {
+                out.write(blocks.poll().join());
+            }
+        } finally {
+            for (ForkJoinTask<byte[]> block : blocks) {
+                block.cancel(false); // after a failed write
             }
         }
     }
 
+    private static byte[] formatCsv(InventorySnapshot snapshot, int first, int last, String newline) {
+        StringBuilder text = new StringBuilder((last - first) * 48);
+        for (int row = first; row < last; row++) {
+            snapshot.appendCsvAt(row, text);
+            text.append(newline);
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
     /**
-     * Loads the inventory from a CSV file.
+     * Loads the inventory from the snapshot file, then replays the journal on top of it.
      * @throws IOException if a file reading error occurs (except FileNotFound).
      */
     public void loadFromFile() throws IOException {
-        products.clear();
-        int maxId = 0;
-        try (BufferedReader br = new BufferedReader(new FileReader(SAVE_FILE))) {
-            String line;
-            br.readLine(); // Skip header row
-
-            while ((line = br.readLine()) != null) {
-                String[] values = line.split(",");
-                if (values.length < 5) continue; // Skip malformed lines
-
-                try {
-                    int id = Integer.parseInt(values[0]);
-                    String type = values[1];
-                    String name = values[2];
-                    double price = Double.parseDouble(values[3]);
-                    int quantity = Integer.parseInt(values[4]);
-                    String specificDetail = (values.length > 5) ? values[5] : "";
-
-                    Product product = null;
-                    if ("Electronics".equals(type)) {
-                        int warranty = specificDetail.isEmpty() ? 0 : Integer.parseInt(specificDetail);
-                        product = new Electronics(id, name, price, quantity, warranty);
-                    } else if ("Groceries".equals(type)) {
-                        product = new Groceries(id, name, price, quantity, specificDetail);
-                    }
-
-                    if (product != null) {
-                        products.add(product);
-                        if (id > maxId) {
-                            maxId = id; // Track the highest ID
-                        }
-                    }
-                } catch (NumberFormatException e) {
-                    System.err.println("Skipping malformed line: " + line);
+        synchronized (persistenceLock) {
+            try {
+                Metrics.Span span = LOAD_TIMER.begin();
+                clearProducts();
+                finishReading(readSnapshotBatches(this::insertBatch, progress -> { }));
+                span.end(size());
+            } finally {
+                for (InventoryListener listener : listeners) {
+                    listener.inventoryChanged();
                 }
             }
-        } catch (java.io.FileNotFoundException e) {
+        }
+    }
+
+    // --- STREAMING LOAD ---
+    // A streaming load lets a UI show products while the file is still being read:
+    //   beginLoad()                        on the inventory's thread
+    //   readSnapshotBatches(sink, ...)     on a background thread; does not touch the inventory
+    //   addLoadedBatch(batch)              on the inventory's thread, for every batch
+    //   finishLoad(maxId)                  on the inventory's thread; replays the journal
+
+    /**
+     * Empties the inventory before a streaming load.
+     */
+    public void beginLoad() {
+        clearProducts();
+        for (InventoryListener listener : listeners) {
+            listener.inventoryChanged();
+        }
+    }
+
+    /**
+     * Reads the snapshot file and hands its products over in batches, in file
+     * order, without modifying the inventory. Safe to call from any thread.
+     * @param batchSink Receives the batches, on the calling thread.
+     * @param progress Receives the fraction of the snapshot read so far (0 to 1).
+     * @return The highest product ID read, to pass to finishLoad.
+     * @throws IOException if a file reading error occurs.
+     */
+    public int readSnapshotBatches(Consumer<List<Product>> batchSink, DoubleConsumer progress) throws IOException {
+        Path snapshot = findSnapshot();
+        loadedSnapshot = snapshot;
+        if (snapshot == null) {
             // This is fine, just means no save file exists yet.
             System.out.println("No save file found. Starting fresh.");
-            return; // Exit method, no need to update counter
+            progress.accept(1.0);
+            return 0;
         }
-        // IMPORTANT: Update the static ID counter in Product class
-        Product.updateIdCounter(maxId);
+        return readSnapshotBatches(snapshot, batchSink, progress);
     }
-}
 
+    /**
+     * Reads a snapshot in either format in batches.
+     * @return The highest product ID read.
+     */
+    private static int readSnapshotBatches(Path snapshot, Consumer<List<Product>> batchSink, DoubleConsumer progress)
+            throws IOException {
+        if (!BinarySnapshot.isBinarySnapshot(snapshot)) {
+            return CsvChunkLoader.read(snapshot, batchSink, progress);
+        }
+        List<List<Product>> batch = new ArrayList<>(1);
+        batch.add(new ArrayList<>(LOAD_BATCH_SIZE));
+        int maxId = BinarySnapshot.read(snapshot, product -> {
+            batch.get(0).add(product);
+            if (batch.get(0).size() == LOAD_BATCH_SIZE) {
+                batchSink.accept(batch.get(0));
+                batch.set(0, new ArrayList<>(LOAD_BATCH_SIZE));
+            }
+        }, progress);
+        if (!batch.get(0).isEmpty()) {
+            batchSink.accept(batch.get(0));
+        }
+        return maxId;
+    }
+
+    /**
+     * Appends one batch from readSnapshotBatches, skipping duplicate IDs,
+     * and notifies listeners once for the whole batch.
+     */
+    public void addLoadedBatch(List<Product> batch) {
+        int firstRow;
+        int lastRow;
+        long stamp = lock.writeLock();
+        try {
+            firstRow = store.size();
+            insertLoaded(batch);
+            lastRow = store.size() - 1;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (lastRow >= firstRow) {
+            for (InventoryListener listener : listeners) {
+                listener.productsAdded(firstRow, lastRow);
+            }
+        }
+    }
+
+    /**
+     * Completes a streaming load: replays the journal and advances the ID allocator.
+     * @param maxId The value returned by readSnapshotBatches.
+     * @throws IOException if the journal cannot be read.
+     */
+    public void finishLoad(int maxId) throws IOException {
+        try {
+            finishReading(maxId);
+        } finally {
+            for (InventoryListener listener : listeners) {
+                listener.inventoryChanged();
+            }
+        }
+    }
+
+    private void finishReading(int maxId) throws IOException {
+        Path snapshot = loadedSnapshot;
+        // A snapshot in the other format gets converted on the next save
+        if (snapshot != null && !snapshot.equals(getSnapshotPath(snapshotFormat))) {
+            snapshotStale = true;
+        }
+        InventoryJournal journal = this.journal;
+        if (journal != null) {
+            long stamp = lock.writeLock();
+            try {
+                maxId = Math.max(maxId, replayJournal(journal));
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        // IMPORTANT: New products must get IDs above every loaded or previously allocated one
+        advanceIds(maxId);
+    }
+
+    /**
+     * Raises this inventory's ID high-water mark, and the global allocator's
+     * so products built without an ID never reuse one of ours.
+     */
+    private void advanceIds(int id) {
+        ids.advanceTo(id);
+        IdAllocator.global().advanceTo(id);
+    }
+
+    private void clearProducts() {
+        long stamp = lock.writeLock();
+        try {
+            store.clear();
+            index.clear();
+            resetAggregates();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Picks the snapshot to load: the configured format's file, unless only
+     * the other format's file exists or it is newer (the format was switched).
+     * @return The snapshot file, or null if there is none.
+     */
+    private Path findSnapshot() throws IOException {
+        Path preferred = getSnapshotPath(snapshotFormat);
+        Path other = getSnapshotPath(snapshotFormat == SnapshotFormat.CSV ? SnapshotFormat.BINARY : SnapshotFormat.CSV);
+        if (!Files.exists(other)) {
+            return Files.exists(preferred) ? preferred : null;
+        }
+        if (!Files.exists(preferred)
+                || Files.getLastModifiedTime(other).compareTo(Files.getLastModifiedTime(preferred)) > 0) {
+            return other;
+        }
+        return preferred;
+    }
+
+    /**
+     * Inserts a batch read from a snapshot under the write lock, without notifying listeners.
+     */
+    private void insertBatch(List<Product> batch) {
+        long stamp = lock.writeLock();
+        try {
+            insertLoaded(batch);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Inserts products read from a snapshot, skipping duplicate IDs.
+     * Callers hold the write lock.
+     */
+    private void insertLoaded(List<Product> batch) {
+        ensureCapacity(store.size() + batch.size());
+        for (Product product : batch) {
+            if (index.contains(product.getId())) {
+                System.err.println("Skipping duplicate product ID: " + product.getId());
+            } else {
+                insert(product);
+            }
+        }
+    }
+
+    /**
+     * Applies journal records on top of the loaded snapshot. Adds and updates
+     * carry the full product and are applied as upserts; removes of unknown
+     * IDs are ignored, so records already folded into the snapshot are harmless.
+     * Callers hold the write lock.
+     * @return The highest product ID seen in the journal.
+     */
+    private int replayJournal(InventoryJournal journal) throws IOException {
+        int[] maxId = {0};
+        journal.replay((op, body, line) -> {
+            try {
+                if (op == InventoryJournal.REMOVE) {
+                    int slot = index.get(Integer.parseInt(body));
+                    if (slot >= 0) {
+                        delete(slot);
+                    }
+                    return;
+                }
+                String[] values = body.split(",");
+                Product product = values.length < 5 ? null : parseProduct(values);
+                if ((op != InventoryJournal.ADD && op != InventoryJournal.UPDATE) || product == null) {
+                    System.err.println("Skipping malformed journal record: " + line);
+                    return;
+                }
+                int slot = index.get(product.getId());
+                if (slot >= 0) {
+                    countOut(slot);
+                    store.set(slot, product);
+                    countIn(slot);
+                } else {
+                    insert(product);
+                }
+                maxId[0] = Math.max(maxId[0], product.getId());
+            } catch (NumberFormatException e) {
+                System.err.println("Skipping malformed journal record: " + line);
+            }
+        });
+        return maxId[0];
+    }
+
+    /**
+     * Parses one CSV record (ID,Type,Name,Price,Quantity[,SpecificDetail]).
+     * @return The product, or null if the type is unknown.
+     * @throws NumberFormatException if a numeric field is malformed.
+     */
+    private static Product parseProduct(String[] values) {
+        int id = Integer.parseInt(values[0]);
+        String type = values[1];
+        String name = values[2];
+        double price = Double.parseDouble(values[3]);
+        int quantity = Integer.parseInt(values[4]);
+        String specificDetail = (values.length > 5) ? values[5] : "";
+
+        if ("Electronics".equals(type)) {
+            int warranty = specificDetail.isEmpty() ? 0 : Integer.parseInt(specificDetail);
+            return new Electronics(id, name, price, quantity, warranty);
+        } else if ("Groceries".equals(type)) {
+            return new Groceries(id, name, price, quantity, specificDetail);
+        }
+        return null;
+    }
+}
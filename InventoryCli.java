@@ -0,0 +1,273 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Headless command-line entry point for batch jobs on servers and in containers.
+ * Works on Inventory directly and never loads AWT or Swing, so it needs no
+ * display and starts as fast as the JVM does; the rest of the run time is
+ * reading the snapshot.
+ *
+ * Usage: java InventoryCli [--file inventory.csv] [--storage objects|columnar] command [args]
+ * Product lists are printed as CSV rows with the snapshot header (query
+ * results with a header of the selected fields); messages go to standard
+ * error. Exits with 0 on success, 1 on errors and 2 on bad usage.
+ */
+public class InventoryCli {
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java InventoryCli [--file <snapshot>] [--storage objects|columnar] <command> [args]",
+            "",
+            "Commands:",
+            "  import <file>                   Merge a CSV or binary snapshot into the inventory and save it",
+            "  export <file> [csv|binary]      Write the inventory to a snapshot file (binary for .bin files)",
+            "  stats                           Print product count, total value, low stock and categories",
+            "  low-stock [threshold]           List products with quantity <= threshold (default "
+                    + Inventory.DEFAULT_LOW_STOCK_THRESHOLD + ")",
+            "  top [n]                         List the n most stocked products (default 10)",
+            "  query <term>...                 List products matching a query, e.g.",
+            "                                    query type=groceries expires<14d qty>=5 sort=expiry limit=20",
+            "                                  Terms: id= type= name~ price qty warranty expires (with = < <= > >=",
+            "                                  or =a..b), expired, sort=[-]field, limit=n, select=field,...",
+            "  serve [port]                    Serve the JSON API (see InventoryHttpServer) until stopped, saving",
+            "                                  changes automatically; the port defaults to -D"
+                    + InventoryHttpServer.PORT_PROPERTY + " or " + InventoryHttpServer.DEFAULT_PORT,
+            "",
+            "The inventory is read from --file (default inventory.csv) and its journal.",
+            "With -D" + Metrics.FILE_PROPERTY + "=<file>, timing metrics are written to <file> on exit.");
+
+    private static final String CSV_HEADER = "ID,Type,Name,Price,Quantity,SpecificDetail";
+
+    /** Thrown for invalid command lines; main prints the usage and exits with 2. */
+    private static class UsageException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        UsageException(String message) {
+            super(message);
+        }
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        Metrics.startFromSystemProperties();
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+        // Command output owns standard output; notices printed by Inventory go to standard error
+        System.setOut(System.err);
+        int status;
+        try {
+            run(args, out);
+            status = 0;
+        } catch (UsageException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            status = 2;
+        } catch (IOException | ProductNotFoundException | RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            status = 1;
+        } finally {
+            out.flush();
+        }
+        System.exit(status);
+    }
+
+    private static void run(String[] args, PrintWriter out)
+            throws UsageException, IOException, ProductNotFoundException {
+        Path file = Paths.get("inventory.csv");
+        Inventory.StorageMode storage = Inventory.storageModeFromProperty();
+        int i = 0;
+        while (i < args.length && args[i].startsWith("--")) {
+            String option = args[i++];
+            if (i == args.length) {
+                throw new UsageException("Missing value for " + option);
+            }
+            String value = args[i++];
+            if (option.equals("--file")) {
+                file = Paths.get(value);
+            } else if (option.equals("--storage")) {
+                storage = parseEnum(Inventory.StorageMode.class, value, option);
+            } else {
+                throw new UsageException("Unknown option: " + option);
+            }
+        }
+        if (i == args.length) {
+            throw new UsageException("Missing command");
+        }
+        String command = args[i++];
+        String[] rest = Arrays.copyOfRange(args, i, args.length);
+
+        Inventory inventory = new Inventory(file, storage);
+        switch (command) {
+            case "import":
+                requireArgs(rest, 1, 1);
+                importProducts(inventory, Paths.get(rest[0]));
+                break;
+            case "export":
+                requireArgs(rest, 1, 2);
+                export(inventory, Paths.get(rest[0]), rest.length > 1 ? rest[1] : null);
+                break;
+            case "stats":
+                requireArgs(rest, 0, 0);
+                inventory.loadFromFile();
+                printStats(inventory, out);
+                break;
+            case "low-stock":
+                requireArgs(rest, 0, 1);
+                int threshold = rest.length > 0 ? parseInt(rest[0], "threshold") : Inventory.DEFAULT_LOW_STOCK_THRESHOLD;
+                inventory.loadFromFile();
+                long count = inventory.getLowStockCount(threshold);
+                // The low-stock products are exactly the bottom of the stock ranking
+                printProducts(inventory.getBottomNStockedProducts((int) Math.min(count, Integer.MAX_VALUE)), out);
+                break;
+            case "top":
+                requireArgs(rest, 0, 1);
+                int n = rest.length > 0 ? parseInt(rest[0], "n") : 10;
+                inventory.loadFromFile();
+                printProducts(inventory.getTopNStockedProducts(n), out);
+                break;
+            case "query":
+                if (rest.length == 0) {
+                    throw new UsageException("Missing query");
+                }
+                ProductQuery query;
+                try {
+                    query = ProductQuery.parse(Arrays.asList(rest));
+                } catch (IllegalArgumentException e) {
+                    throw new UsageException("Invalid query: " + e.getMessage());
+                }
+                inventory.loadFromFile();
+                printQueryResult(inventory.query(query), out);
+                break;
+            case "serve":
+                requireArgs(rest, 0, 1);
+                int port = rest.length > 0 ? parseInt(rest[0], "port")
+                        : Integer.getInteger(InventoryHttpServer.PORT_PROPERTY, InventoryHttpServer.DEFAULT_PORT);
+                inventory.loadFromFile();
+                serve(inventory, port);
+                break;
+            default:
+                throw new UsageException("Unknown command: " + command);
+        }
+    }
+
+    private static void importProducts(Inventory inventory, Path source) throws IOException, ProductNotFoundException {
+        // Read the source first, so a bad file fails before the inventory is touched
+        List<Product> products = Inventory.readProducts(source);
+        inventory.loadFromFile();
+        int before = inventory.size();
+        inventory.mergeAll(products);
+        inventory.saveToFile();
+        int added = inventory.size() - before;
+        System.err.println("Imported " + products.size() + " products from " + source
+                + " (" + added + " added, " + (products.size() - added) + " updated).");
+    }
+
+    private static void export(Inventory inventory, Path target, String formatName)
+            throws UsageException, IOException {
+        Inventory.SnapshotFormat format;
+        if (formatName != null) {
+            format = parseEnum(Inventory.SnapshotFormat.class, formatName, "format");
+        } else {
+            format = target.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".bin")
+                    ? Inventory.SnapshotFormat.BINARY : Inventory.SnapshotFormat.CSV;
+        }
+        inventory.loadFromFile();
+        inventory.exportTo(target, format);
+        System.err.println("Exported " + inventory.size() + " products to " + target + ".");
+    }
+
+    /**
+     * Serves the HTTP API until the JVM is stopped (Ctrl+C or SIGTERM), then
+     * stops the server and saves what the autosaver has not saved yet.
+     */
+    private static void serve(Inventory inventory, int port) throws IOException {
+        AutoSaver autoSaver = new AutoSaver(inventory);
+        autoSaver.start();
+        InventoryHttpServer server = InventoryHttpServer.start(inventory, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            try {
+                autoSaver.close();
+            } catch (IOException e) {
+                System.err.println("Failed to save on exit: " + e.getMessage());
+            }
+        }, "inventory-http-exit"));
+        try {
+            Thread.currentThread().join(); // Requests run on the server's threads until shutdown
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void printStats(Inventory inventory, PrintWriter out) {
+        out.println("Products: " + inventory.size());
+        out.println(String.format(Locale.ROOT, "Total value: %.2f", inventory.getTotalInventoryValue()));
+        out.println("Low stock (<= " + Inventory.DEFAULT_LOW_STOCK_THRESHOLD + "): "
+                + inventory.getLowStockCount(Inventory.DEFAULT_LOW_STOCK_THRESHOLD));
+        Map<String, Double> values = inventory.getCategoryValues();
+        for (Map.Entry<String, Long> entry : inventory.getCategoryCounts().entrySet()) {
+            Double value = values.get(entry.getKey());
+            out.println(String.format(Locale.ROOT, "%s: %d products, value %.2f",
+                    entry.getKey(), entry.getValue(), value != null ? value : 0.0));
+        }
+    }
+
+    private static void printProducts(List<Product> products, PrintWriter out) {
+        out.println(CSV_HEADER);
+        for (Product product : products) {
+            out.println(product.toCSVString());
+        }
+    }
+
+    private static void printQueryResult(QueryResult result, PrintWriter out) {
+        StringBuilder line = new StringBuilder();
+        for (ProductQuery.Field field : result.getFields()) {
+            line.append(line.length() == 0 ? "" : ",").append(field.getLabel());
+        }
+        out.println(line);
+        for (Object[] row : result.getRows()) {
+            line.setLength(0);
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                if (result.getFields().get(i) == ProductQuery.Field.VALUE) {
+                    line.append(String.format(Locale.ROOT, "%.2f", (Double) row[i]));
+                } else if (row[i] != null) {
+                    line.append(row[i]);
+                }
+            }
+            out.println(line);
+        }
+        System.err.println(result.size() + " products (" + result.getPlan() + ").");
+    }
+
+    private static void requireArgs(String[] args, int min, int max) throws UsageException {
+        if (args.length < min || args.length > max) {
+            throw new UsageException("Wrong number of arguments");
+        }
+    }
+
+    private static int parseInt(String value, String name) throws UsageException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new UsageException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, String name) throws UsageException {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new UsageException("Invalid " + name + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,550 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional embedded HTTP server that gives other systems (POS terminals,
+ * scanner apps) JSON access to a running inventory:
+ * <pre>
+ * GET  /api/products                    every product, streamed (offset=, limit=)
+ * GET  /api/products?q=&lt;query&gt;          products matching a query, as in InventoryCli query
+ * GET  /api/products/&lt;id&gt;               one product
+ * POST /api/products/&lt;id&gt;/stock?delta=n  adjust the quantity by n (negative for sales)
+ * GET  /api/stats                       counts, total value, low stock (lowStock=threshold)
+ * GET  /api/top?n=10[&amp;order=asc]        the most (or least) stocked products
+ * GET  /metrics                         every metric in the Prometheus text format
+ * </pre>
+ * Errors are answered as {"error": "..."} with status 400, 404 or 405.
+ *
+ * Requests run on virtual threads when the JVM has them (Java 21 and later),
+ * otherwise on a fixed pool where further requests wait. Reads are optimistic
+ * or work on a snapshot, so thousands of concurrent readers neither block
+ * each other nor the desktop UI; stock adjustments go through
+ * Inventory.adjustQuantity, which serializes changes of the same product.
+ * Each route has a latency timer "http.&lt;route&gt;" (see Metrics).
+ */
+public class InventoryHttpServer implements AutoCloseable {
+
+    /** System property with the port to serve on; no server if unset. */
+    public static final String PORT_PROPERTY = "inventory.http.port";
+    /** System property with the address to bind to (default 127.0.0.1; 0.0.0.0 for every interface). */
+    public static final String HOST_PROPERTY = "inventory.http.host";
+    public static final String DEFAULT_HOST = "127.0.0.1";
+    /** Port of InventoryCli serve when neither an argument nor the property gives one. */
+    public static final int DEFAULT_PORT = 8080;
+
+    private static final String JSON_TYPE = "application/json; charset=utf-8";
+    private static final String METRICS_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final int BACKLOG = 1024; // pending connections the OS queues
+    private static final int STOP_DELAY_SECONDS = 1; // for exchanges in progress
+
+    private static final Metrics.Timer LIST_TIMER = Metrics.global().timer("http.products.list");
+    private static final Metrics.Timer SEARCH_TIMER = Metrics.global().timer("http.products.search");
+    private static final Metrics.Timer GET_TIMER = Metrics.global().timer("http.products.get");
+    private static final Metrics.Timer STOCK_TIMER = Metrics.global().timer("http.products.stock");
+    private static final Metrics.Timer STATS_TIMER = Metrics.global().timer("http.stats");
+    private static final Metrics.Timer TOP_TIMER = Metrics.global().timer("http.top");
+    private static final Metrics.Timer METRICS_TIMER = Metrics.global().timer("http.metrics");
+    private static final LongAdder ERRORS = Metrics.global().counter("http.errors");
+
+    /** Answers one request. */
+    private interface Handler {
+        /**
+         * @return The number of products in the response, for the request's timer.
+         */
+        int handle(HttpExchange exchange) throws IOException, ProductNotFoundException, HttpError;
+    }
+
+    /** A request the server refuses, with its HTTP status. */
+    private static class HttpError extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final Inventory inventory;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    /**
+     * Binds a server to an address; it answers requests once start() is called.
+     * @throws IOException if the address cannot be bound.
+     */
+    public InventoryHttpServer(Inventory inventory, InetSocketAddress address) throws IOException {
+        this.inventory = inventory;
+        server = HttpServer.create(address, BACKLOG);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        virtualThreads = virtual != null;
+        executor = virtual != null ? virtual : newPlatformThreadExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/products", exchange -> route(exchange));
+        server.createContext("/api/stats", exchange -> serve(exchange, "GET", STATS_TIMER, this::stats));
+        server.createContext("/api/top", exchange -> serve(exchange, "GET", TOP_TIMER, this::top));
+        server.createContext("/metrics", exchange -> serve(exchange, "GET", METRICS_TIMER, this::metrics));
+        server.createContext("/", exchange -> fail(exchange, 404, "No such resource: " + exchange.getRequestURI().getPath()));
+    }
+
+    /**
+     * Returns a virtual-thread-per-task executor, or null before Java 21.
+     * Looked up reflectively, since the application still runs on Java 11.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadExecutor() {
+        int threads = Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "inventory-http-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Returns true if requests run on virtual threads.
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Stops accepting requests, lets the ones in progress finish for up to a
+     * second, then stops the request threads.
+     */
+    @Override
+    public void close() {
+        server.stop(STOP_DELAY_SECONDS);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(STOP_DELAY_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts a server for an inventory if the inventory.http.port system
+     * property is set, bound to inventory.http.host (default 127.0.0.1).
+     * @return The running server, or null if the property is unset or invalid.
+     * @throws IOException if the address cannot be bound.
+     */
+    public static InventoryHttpServer startFromSystemProperties(Inventory inventory) throws IOException {
+        String value = System.getProperty(PORT_PROPERTY);
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        int port;
+        try {
+            port = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            port = -1;
+        }
+        if (port < 0 || port > 65535) {
+            System.err.println("Ignoring " + PORT_PROPERTY + "=" + value + "; not a port number.");
+            return null;
+        }
+        return start(inventory, port);
+    }
+
+    /**
+     * Starts a server on a port (0 for any free one), bound to
+     * inventory.http.host (default 127.0.0.1).
+     * @throws IOException if the address cannot be bound.
+     */
+    public static InventoryHttpServer start(Inventory inventory, int port) throws IOException {
+        String host = System.getProperty(HOST_PROPERTY, DEFAULT_HOST).trim();
+        InventoryHttpServer server = new InventoryHttpServer(inventory, new InetSocketAddress(host, port));
+        server.start();
+        System.err.println("Serving the inventory API on http://" + host + ":" + server.getAddress().getPort()
+                + (server.usesVirtualThreads() ? " (virtual threads)" : ""));
+        return server;
+    }
+
+    // --- REQUEST HANDLING ---
+
+    /**
+     * Dispatches /api/products, /api/products/&lt;id&gt; and /api/products/&lt;id&gt;/stock.
+     */
+    private void route(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        String[] parts = path.substring("/api/products".length()).split("/");
+        // "" -> [""], "/12" -> ["", "12"], "/12/stock" -> ["", "12", "stock"]
+        if (parts.length == 1 && parts[0].isEmpty()) {
+            boolean search = parameters(exchange).containsKey("q");
+            serve(exchange, "GET", search ? SEARCH_TIMER : LIST_TIMER, search ? this::search : this::list);
+        } else if (parts.length == 2 && parts[0].isEmpty()) {
+            serve(exchange, "GET", GET_TIMER, e -> product(e, parts[1]));
+        } else if (parts.length == 3 && parts[0].isEmpty() && parts[2].equals("stock")) {
+            serve(exchange, "POST", STOCK_TIMER, e -> adjustStock(e, parts[1]));
+        } else {
+            fail(exchange, 404, "No such resource: " + path);
+        }
+    }
+
+    /**
+     * Runs a handler, timing the request and turning failures into error responses.
+     */
+    private void serve(HttpExchange exchange, String method, Metrics.Timer timer, Handler handler) {
+        Metrics.Span span = timer.begin();
+        try {
+            if (!exchange.getRequestMethod().equals(method)) {
+                exchange.getResponseHeaders().set("Allow", method);
+                throw new HttpError(405, "Use " + method + " for " + exchange.getRequestURI().getPath());
+            }
+            span.end(handler.handle(exchange));
+        } catch (HttpError e) {
+            fail(exchange, e.status, e.getMessage());
+        } catch (ProductNotFoundException e) {
+            fail(exchange, 404, e.getMessage());
+        } catch (IllegalArgumentException e) { // e.g. an invalid query or a negative quantity
+            fail(exchange, 400, e.getMessage());
+        } catch (IOException e) {
+            ERRORS.increment(); // usually the client went away
+        } catch (RuntimeException e) {
+            System.err.println("HTTP request " + exchange.getRequestURI() + " failed: " + e);
+            fail(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void fail(HttpExchange exchange, int status, String message) {
+        ERRORS.increment();
+        if (exchange.getResponseCode() != -1) {
+            exchange.close(); // Headers are out (a streamed listing failed); the client sees a cut-off body
+            return;
+        }
+        StringBuilder json = new StringBuilder("{\"error\":");
+        appendString(json, message);
+        json.append('}');
+        try {
+            send(exchange, status, json);
+        } catch (IOException e) {
+            // The client went away
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, CharSequence json) throws IOException {
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Starts a chunked JSON response, for listings whose size is not known up front.
+     */
+    private static Writer stream(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        exchange.sendResponseHeaders(200, 0);
+        return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 1 << 14);
+    }
+
+    // --- ROUTES ---
+
+    /**
+     * Streams every product (or a page of them) from a snapshot, so the
+     * listing is consistent and takes no lock while it is written.
+     */
+    private int list(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = parameters(exchange);
+        InventorySnapshot snapshot = inventory.snapshot();
+        int offset = intParameter(parameters, "offset", 0);
+        int limit = intParameter(parameters, "limit", Integer.MAX_VALUE);
+        int first = Math.min(offset, snapshot.size());
+        int last = (int) Math.min(snapshot.size(), (long) first + limit);
+        StringBuilder json = new StringBuilder(256);
+        try (Writer out = stream(exchange)) {
+            out.write('[');
+            for (int row = first; row < last; row++) {
+                json.setLength(0);
+                if (row > first) {
+                    json.append(',');
+                }
+                appendProduct(json, snapshot, row);
+                out.append(json);
+            }
+            out.write(']');
+        }
+        return last - first;
+    }
+
+    /**
+     * Runs a query (see ProductQuery.parse) and streams its rows with the selected fields.
+     */
+    private int search(HttpExchange exchange) throws IOException {
+        QueryResult result = inventory.query(ProductQuery.parse(parameters(exchange).get("q")));
+        List<ProductQuery.Field> fields = result.getFields();
+        String[] keys = new String[fields.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = fields.get(i).name().toLowerCase(Locale.ROOT);
+        }
+        StringBuilder json = new StringBuilder(256);
+        try (Writer out = stream(exchange)) {
+            out.write("{\"plan\":");
+            json.setLength(0);
+            appendString(json, result.getPlan());
+            out.append(json).write(",\"rows\":[");
+            boolean firstRow = true;
+            for (Object[] row : result.getRows()) {
+                json.setLength(0);
+                json.append(firstRow ? "{" : ",{");
+                firstRow = false;
+                for (int i = 0; i < row.length; i++) {
+                    json.append(i > 0 ? ",\"" : "\"").append(keys[i]).append("\":");
+                    appendValue(json, row[i]);
+                }
+                out.append(json.append('}'));
+            }
+            out.write("]}");
+        }
+        return result.size();
+    }
+
+    private int product(HttpExchange exchange, String id) throws IOException, ProductNotFoundException, HttpError {
+        Product product = inventory.findProductById(parseId(id));
+        StringBuilder json = new StringBuilder(256);
+        appendProduct(json, product);
+        send(exchange, 200, json);
+        return 1;
+    }
+
+    private int adjustStock(HttpExchange exchange, String id) throws IOException, ProductNotFoundException, HttpError {
+        String delta = parameters(exchange).get("delta");
+        if (delta == null) {
+            throw new HttpError(400, "Missing parameter: delta");
+        }
+        int change;
+        try {
+            change = Integer.parseInt(delta.trim());
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, "delta must be a whole number: " + delta);
+        }
+        Product product = inventory.adjustQuantity(parseId(id), change);
+        StringBuilder json = new StringBuilder(256);
+        appendProduct(json, product);
+        send(exchange, 200, json);
+        return 1;
+    }
+
+    private int stats(HttpExchange exchange) throws IOException {
+        int threshold = intParameter(parameters(exchange), "lowStock", Inventory.DEFAULT_LOW_STOCK_THRESHOLD);
+        Map<String, Long> counts = inventory.getCategoryCounts();
+        Map<String, Double> values = inventory.getCategoryValues();
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"version\":").append(inventory.getVersion())
+            .append(",\"products\":").append(inventory.size())
+            .append(",\"totalValue\":");
+        appendValue(json, inventory.getTotalInventoryValue());
+        json.append(",\"lowStockThreshold\":").append(threshold)
+            .append(",\"lowStockCount\":").append(inventory.getLowStockCount(threshold))
+            .append(",\"categories\":[");
+        boolean first = true;
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            json.append(first ? "{\"type\":" : ",{\"type\":");
+            first = false;
+            appendString(json, entry.getKey());
+            json.append(",\"count\":").append(entry.getValue()).append(",\"value\":");
+            appendValue(json, values.getOrDefault(entry.getKey(), 0.0));
+            json.append('}');
+        }
+        send(exchange, 200, json.append("]}"));
+        return 0;
+    }
+
+    private int top(HttpExchange exchange) throws IOException, HttpError {
+        Map<String, String> parameters = parameters(exchange);
+        int n = intParameter(parameters, "n", 10);
+        String order = parameters.getOrDefault("order", "desc");
+        List<Product> products;
+        if (order.equals("desc")) {
+            products = inventory.getTopNStockedProducts(n);
+        } else if (order.equals("asc")) {
+            products = inventory.getBottomNStockedProducts(n);
+        } else {
+            throw new HttpError(400, "order must be asc or desc: " + order);
+        }
+        StringBuilder json = new StringBuilder(64 + 128 * products.size()).append('[');
+        for (int i = 0; i < products.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendProduct(json, products.get(i));
+        }
+        send(exchange, 200, json.append(']'));
+        return products.size();
+    }
+
+    private int metrics(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", METRICS_TYPE);
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer out = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+            Metrics.global().writeText(out);
+        }
+        return 0;
+    }
+
+    // --- PARAMETERS ---
+
+    private static Map<String, String> parameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.putIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static int parseId(String id) throws HttpError {
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, "Invalid product ID: " + id);
+        }
+    }
+
+    private static int intParameter(Map<String, String> parameters, String name, int defaultValue) {
+        String value = parameters.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int number = Integer.parseInt(value.trim());
+            if (number >= 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException(name + " must be a non-negative number: " + value);
+    }
+
+    // --- JSON ---
+
+    private static void appendProduct(StringBuilder json, Product product) {
+        json.append("{\"id\":").append(product.getId()).append(",\"type\":");
+        appendString(json, product.getType());
+        json.append(",\"name\":");
+        appendString(json, product.getName());
+        json.append(",\"price\":");
+        appendValue(json, product.getPrice());
+        json.append(",\"quantity\":").append(product.getQuantity());
+        if (product instanceof Electronics) {
+            json.append(",\"warranty\":").append(((Electronics) product).getWarrantyPeriod());
+        } else if (product instanceof Groceries) {
+            json.append(",\"expiry\":");
+            appendString(json, ((Groceries) product).getExpirationDate());
+        }
+        json.append('}');
+    }
+
+    /**
+     * Same as appendProduct(json, product), from a snapshot row's stored fields.
+     */
+    private static void appendProduct(StringBuilder json, InventorySnapshot snapshot, int row) {
+        json.append("{\"id\":").append(snapshot.getIdAt(row)).append(",\"type\":");
+        appendString(json, snapshot.getTypeAt(row));
+        json.append(",\"name\":");
+        appendString(json, snapshot.getNameAt(row));
+        json.append(",\"price\":");
+        appendValue(json, snapshot.getPriceAt(row));
+        json.append(",\"quantity\":").append(snapshot.getQuantityAt(row));
+        byte type = snapshot.getTypeTagAt(row);
+        if (type == ProductStore.ELECTRONICS) {
+            json.append(",\"warranty\":").append(snapshot.getWarrantyAt(row));
+        } else if (type == ProductStore.GROCERIES) {
+            json.append(",\"expiry\":");
+            appendString(json, snapshot.getExpirationDateAt(row));
+        }
+        json.append('}');
+    }
+
+    private static void appendValue(StringBuilder json, Object value) {
+        if (value == null) {
+            json.append("null");
+        } else if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                json.append("null"); // not representable in JSON
+            } else {
+                json.append(value);
+            }
+        } else {
+            appendString(json, value.toString()); // names, types and dates
+        }
+    }
+
+    private static void appendString(StringBuilder json, String text) {
+        if (text == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
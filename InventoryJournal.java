@@ -0,0 +1,351 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only write-ahead journal of inventory mutations.
+ * Each record is one line: "A,&lt;csv&gt;" (add), "U,&lt;csv&gt;" (update) or
+ * "R,&lt;id&gt;" (remove), where &lt;csv&gt; is the product's toCSVString()
+ * (written with appendCsv). Records carry the full product state, so
+ * replaying a record whose effect is already in the snapshot is harmless.
+ *
+ * Records are buffered in memory and written in groups: when the buffer
+ * reaches the group size, and on every commit(). The fsync policy decides
+ * when written records are forced to disk. A group is taken off the buffer
+ * before it is written, so recording a mutation never waits for another
+ * thread's write or fsync, only the thread that fills a group writes it.
+ */
+public class InventoryJournal {
+
+    /**
+     * When journal writes are forced to the storage device.
+     */
+    public enum FsyncPolicy {
+        /** Never force; leave it to the operating system. */
+        NONE,
+        /** Force once per commit(). */
+        ON_COMMIT,
+        /** Force after every group write, including automatic ones. */
+        EVERY_GROUP
+    }
+
+    public static final char ADD = 'A';
+    public static final char UPDATE = 'U';
+    public static final char REMOVE = 'R';
+
+    private static final int DEFAULT_GROUP_SIZE = 512;
+
+    private final Path path;
+    private final Path rotatedPath; // journal being folded into a snapshot
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.ON_COMMIT;
+    private int groupSize = DEFAULT_GROUP_SIZE;
+
+    // Held for every file operation, so groups reach the file in the order they
+    // were taken off the buffer. Taken before this object's monitor, never inside it.
+    private final Object fileLock = new Object();
+
+    private StringBuilder pending = new StringBuilder();
+    private int pendingCount;
+    private int writingCount; // records taken off the buffer and being written
+    private long writtenCount; // records in the current journal file
+    private IOException deferredError; // failure of an automatic group write
+    private volatile boolean uncommittedWrites; // a group was written automatically since the last commit
+
+    public InventoryJournal(Path path) {
+        this.path = path;
+        this.rotatedPath = path.resolveSibling(path.getFileName() + ".old");
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public synchronized FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    public synchronized void setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    /**
+     * Sets how many records are buffered before they are written as one group.
+     */
+    public synchronized void setGroupSize(int groupSize) {
+        if (groupSize < 1) {
+            throw new IllegalArgumentException("Group size must be positive: " + groupSize);
+        }
+        this.groupSize = groupSize;
+    }
+
+    public void recordAdd(Product product) {
+        appendProduct(ADD, product);
+    }
+
+    public void recordUpdate(Product product) {
+        appendProduct(UPDATE, product);
+    }
+
+    public void recordRemove(int productId) {
+        boolean full;
+        synchronized (this) {
+            pending.append(REMOVE).append(',').append(productId);
+            full = endRecord();
+        }
+        if (full) {
+            writeFullGroup();
+        }
+    }
+
+    /**
+     * Returns true if a full group was written since the last commit(), so
+     * the file holds records that a commit has yet to complete. Lock-free.
+     */
+    public boolean hasUncommittedWrites() {
+        return uncommittedWrites;
+    }
+
+    /**
+     * Returns the number of records in the journal, written or pending.
+     */
+    public synchronized long getRecordCount() {
+        return writtenCount + writingCount + pendingCount;
+    }
+
+    // Records are formatted straight into the buffer, without a string per record
+    private void appendProduct(char op, Product product) {
+        boolean full;
+        synchronized (this) {
+            pending.append(op).append(',');
+            product.appendCsv(pending);
+            full = endRecord();
+        }
+        if (full) {
+            writeFullGroup();
+        }
+    }
+
+    /**
+     * Ends the record just appended to the buffer. Callers hold the monitor.
+     * @return Whether the buffer holds a full group to write.
+     */
+    private boolean endRecord() {
+        pending.append('\n');
+        // After a failed group write, wait for the next commit to retry rather
+        // than rewriting the whole growing buffer on every append
+        return ++pendingCount >= groupSize && deferredError == null;
+    }
+
+    private void writeFullGroup() {
+        synchronized (fileLock) {
+            try {
+                writePending(false);
+            } catch (IOException e) {
+                // Keep the records buffered and report on the next commit
+                synchronized (this) {
+                    deferredError = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes all pending records in one group and forces them to disk
+     * unless the fsync policy is NONE.
+     * @throws IOException if writing fails; the records stay pending.
+     */
+    public void commit() throws IOException {
+        synchronized (fileLock) {
+            synchronized (this) {
+                deferredError = null;
+            }
+            writePending(true);
+            uncommittedWrites = false;
+        }
+    }
+
+    /**
+     * Takes the pending records off the buffer and appends them to the file.
+     * Callers hold fileLock; appends can continue while the group is written.
+     * @param commit true for commit(), false for an automatic group write,
+     *     which is skipped if a commit took the records in the meantime.
+     * @throws IOException if writing fails; the records are put back in front of the buffer.
+     */
+    private void writePending(boolean commit) throws IOException {
+        String group;
+        int count;
+        boolean force;
+        synchronized (this) {
+            if (pendingCount == 0 || (!commit && pendingCount < groupSize)) {
+                return;
+            }
+            group = pending.toString();
+            count = pendingCount;
+            pending = new StringBuilder();
+            pendingCount = 0;
+            writingCount = count;
+            force = commit ? fsyncPolicy != FsyncPolicy.NONE : fsyncPolicy == FsyncPolicy.EVERY_GROUP;
+        }
+        boolean written = false;
+        try {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(group);
+            try (FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                if (force) {
+                    channel.force(false);
+                }
+            }
+            written = true;
+        } finally {
+            synchronized (this) {
+                writingCount = 0;
+                if (written) {
+                    writtenCount += count;
+                    uncommittedWrites = !commit;
+                } else {
+                    pending.insert(0, group);
+                    pendingCount += count;
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts compaction: commits pending records, then moves the journal
+     * aside so new records go to a fresh file. The caller must then write a
+     * snapshot that includes every rotated record and call finishRotation().
+     * If an earlier compaction never finished, the journal is appended to the
+     * journal it rotated, so no record is dropped before a snapshot holds it.
+     */
+    public void rotate() throws IOException {
+        synchronized (fileLock) {
+            synchronized (this) {
+                if (deferredError != null) {
+                    throw deferredError;
+                }
+            }
+            writePending(true);
+            if (Files.exists(path)) {
+                if (Files.exists(rotatedPath)) {
+                    Files.write(rotatedPath, Files.readAllBytes(path), StandardOpenOption.APPEND);
+                    Files.delete(path);
+                } else {
+                    Files.move(path, rotatedPath, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            synchronized (this) {
+                writtenCount = 0;
+            }
+            uncommittedWrites = false;
+        }
+    }
+
+    /**
+     * Deletes the rotated journal once its records are safely in a snapshot.
+     */
+    public void finishRotation() throws IOException {
+        synchronized (fileLock) {
+            Files.deleteIfExists(rotatedPath);
+        }
+    }
+
+    /**
+     * Discards all records, written or pending, including any rotated journal.
+     */
+    public void clear() throws IOException {
+        synchronized (fileLock) {
+            synchronized (this) {
+                pending = new StringBuilder();
+                pendingCount = 0;
+                writtenCount = 0;
+                deferredError = null;
+            }
+            Files.deleteIfExists(rotatedPath);
+            Files.deleteIfExists(path);
+            uncommittedWrites = false;
+        }
+    }
+
+    /**
+     * Receives journal records during replay.
+     */
+    public interface RecordHandler {
+        void handle(char op, String body, String line);
+    }
+
+    /**
+     * Replays the rotated journal left by an interrupted compaction (if any),
+     * then the current journal, in order. Lines too short to be records are skipped.
+     * @return The number of records read from the current journal.
+     */
+    public long replay(RecordHandler handler) throws IOException {
+        synchronized (fileLock) {
+            if (Files.exists(rotatedPath)) {
+                replayFile(rotatedPath, handler);
+            }
+            long count = 0;
+            if (Files.exists(path)) {
+                truncateTornTail(path);
+                count = replayFile(path, handler);
+            }
+            synchronized (this) {
+                writtenCount = count;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Cuts off a partial last record left by a crash mid-write, so that the
+     * next append does not get glued onto it.
+     */
+    private static void truncateTornTail(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            long end = channel.size();
+            while (end > 0) {
+                int length = (int) Math.min(buffer.capacity(), end);
+                buffer.clear().limit(length);
+                channel.read(buffer, end - length);
+                for (int i = length - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        long keep = end - length + i + 1;
+                        if (keep < channel.size()) {
+                            channel.truncate(keep);
+                        }
+                        return;
+                    }
+                }
+                end -= length;
+            }
+            channel.truncate(0);
+        }
+    }
+
+    private static long replayFile(Path file, RecordHandler handler) throws IOException {
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() < 2 || line.charAt(1) != ',') {
+                    if (!line.isEmpty()) {
+                        System.err.println("Skipping malformed journal record: " + line);
+                    }
+                    continue;
+                }
+                handler.handle(line.charAt(0), line.substring(2), line);
+                count++;
+            }
+        }
+        return count;
+    }
+}
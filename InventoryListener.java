@@ -0,0 +1,35 @@
+/**
+ * Receives notifications about changes to an Inventory.
+ * Rows are positions in the inventory's product list, as used by Inventory.getProductAt.
+ * Notifications are delivered on the thread that changed the inventory.
+ */
+public interface InventoryListener {
+    /**
+     * A product was added at the given row.
+     */
+    void productAdded(Product product, int row);
+
+    /**
+     * Products were appended at rows firstRow to lastRow (inclusive),
+     * for example one batch of a streaming load.
+     */
+    void productsAdded(int firstRow, int lastRow);
+
+    /**
+     * The product at the given row was updated in place.
+     */
+    void productUpdated(Product product, int row);
+
+    /**
+     * The product at the given row was removed. The product previously at
+     * lastRow was moved into row, and lastRow no longer exists. When
+     * row == lastRow the removed product was the last one.
+     */
+    void productRemoved(Product product, int row, int lastRow);
+
+    /**
+     * The inventory changed in bulk (for example, it was loaded from a file).
+     * Listeners should resynchronize everything they derived from it.
+     */
+    void inventoryChanged();
+}
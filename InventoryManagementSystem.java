@@ -3,12 +3,19 @@ import com.formdev.flatlaf.FlatLightLaf;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.TableRowSorter;
 
 // --- FIXES ARE HERE ---
@@ -26,22 +33,47 @@ import java.util.Map;              // Added this import
 public class InventoryManagementSystem extends JFrame {
 
     private Inventory inventory = new Inventory();
-    private DefaultTableModel tableModel;
+    private InventoryTableModel tableModel;
     private JTable productTable;
-    private TableRowSorter<DefaultTableModel> sorter;
+    private TableRowSorter<InventoryTableModel> sorter;
     
     private JLabel statusBarLabel;
+    private JProgressBar loadProgressBar;
     private GraphPanel graphPanel;
     private JTabbedPane tabbedPane;
+    // Coalesces table, dashboard and graph refreshes into one update per frame
+    private final RefreshScheduler refreshScheduler = new RefreshScheduler();
     
     // Dashboard components
     private JLabel totalValueLabel, totalItemsLabel, lowStockLabel;
     private JPanel categoryStatsPanel;
+    private JPanel expiringPanel;
+    private volatile long dashboardVersion = -1; // inventory version shown on the dashboard
+
+    /** Days ahead the dashboard's Expiring Soon panel looks. */
+    private static final int EXPIRING_SOON_DAYS = 7;
+    /** Products listed by name in the Expiring Soon panel. */
+    private static final int EXPIRING_SOON_LISTED = 5;
+
+    // Set while the inventory is streaming in; edits and saves wait until it is done
+    private boolean loading;
+    // Set if loading failed part-way, so a save cannot overwrite the file with partial data
+    private boolean loadFailed;
+    // Saves changes in the background once the inventory has loaded successfully
+    private AutoSaver autoSaver;
+    // Optional JSON API for other systems (see InventoryHttpServer), also started after the load
+    private InventoryHttpServer httpServer;
 
     public InventoryManagementSystem() {
         setTitle("Inventory Management System");
         setSize(1000, 700);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                saveOnExit();
+            }
+        });
         setLocationRelativeTo(null);
         
         // --- Create Main Components ---
@@ -63,15 +95,27 @@ public class InventoryManagementSystem extends JFrame {
         
         add(tabbedPane, BorderLayout.CENTER);
         
-        // --- Listen for tab changes to refresh graphs/dashboard ---
-        tabbedPane.addChangeListener(e -> {
-            Component selectedComponent = tabbedPane.getSelectedComponent();
-            if (selectedComponent == graphPanel) {
-                graphPanel.refreshGraphs();
-            } else if (selectedComponent == dashboardPanel) { // Assuming dashboardPanel is a class field
-                refreshDashboard();
+        // --- Refreshes ---
+        // Every inventory change marks the dashboard and graphs dirty; the scheduler
+        // gathers their data off the EDT once per frame. Switching tabs needs no
+        // refresh: the dashboard is kept current and the graph panel catches up when shown.
+        tableModel.setRefreshScheduler(refreshScheduler);
+        refreshScheduler.setView(RefreshScheduler.Region.DASHBOARD, new RefreshScheduler.View<DashboardData>() {
+            @Override
+            public DashboardData compute() {
+                return computeDashboard();
+            }
+
+            @Override
+            public void apply(DashboardData data) {
+                showDashboard(data);
             }
         });
+        refreshScheduler.setView(RefreshScheduler.Region.CHARTS, graphPanel);
+        inventory.addInventoryListener(refreshScheduler);
+        inventory.trackExpiringWithin(EXPIRING_SOON_DAYS);
+        scheduleDateChangeRefresh();
+        Metrics.global().gauge("inventory.products", () -> inventory.size());
         
         // --- Load Data ---
         loadDataWithWorker();
@@ -96,12 +140,16 @@ public class InventoryManagementSystem extends JFrame {
         saveItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_S, InputEvent.CTRL_DOWN_MASK));
         // --- END FIX ---
         saveItem.addActionListener(e -> saveDataWithWorker());
+
+        JMenuItem importItem = new JMenuItem("Import Products...");
+        importItem.addActionListener(e -> importProductsWithWorker());
         
         JMenuItem exitItem = new JMenuItem("Exit");
         exitItem.setMnemonic(KeyEvent.VK_X);
-        exitItem.addActionListener(e -> System.exit(0));
+        exitItem.addActionListener(e -> dispatchEvent(new WindowEvent(this, WindowEvent.WINDOW_CLOSING)));
         
         fileMenu.add(saveItem);
+        fileMenu.add(importItem);
         fileMenu.addSeparator();
         fileMenu.add(exitItem);
         
@@ -120,6 +168,11 @@ public class InventoryManagementSystem extends JFrame {
         
         viewMenu.add(lightMode);
         viewMenu.add(darkMode);
+        viewMenu.addSeparator();
+
+        JMenuItem diagnosticsItem = new JMenuItem("Diagnostics...");
+        diagnosticsItem.addActionListener(e -> showDiagnostics());
+        viewMenu.add(diagnosticsItem);
         
         menuBar.add(fileMenu);
         menuBar.add(viewMenu);
@@ -176,6 +229,11 @@ public class InventoryManagementSystem extends JFrame {
         statusBarLabel = new JLabel("Ready.");
         statusBarLabel.setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
         statusBar.add(statusBarLabel, BorderLayout.CENTER);
+
+        loadProgressBar = new JProgressBar(0, 100);
+        loadProgressBar.setStringPainted(true);
+        loadProgressBar.setVisible(false);
+        statusBar.add(loadProgressBar, BorderLayout.EAST);
         return statusBar;
     }
 
@@ -186,22 +244,31 @@ public class InventoryManagementSystem extends JFrame {
         JPanel inventoryPanel = new JPanel(new BorderLayout(5, 5));
         inventoryPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-        // Search Panel
+        // Filter Panel: plain words search the name, conditions run a query
         JPanel searchPanel = new JPanel(new BorderLayout(5, 5));
-        searchPanel.add(new JLabel("Search by Name: "), BorderLayout.WEST);
+        searchPanel.add(new JLabel("Filter: "), BorderLayout.WEST);
         JTextField searchField = new JTextField();
+        searchField.setToolTipText("<html>Words search the name; conditions narrow the list, e.g.<br>"
+                + "type=groceries qty&lt;=10 price=5..20 warranty&gt;=12 expires&lt;7d expired sort=-qty</html>");
+        Color filterForeground = searchField.getForeground();
         searchPanel.add(searchField, BorderLayout.CENTER);
         inventoryPanel.add(searchPanel, BorderLayout.NORTH);
 
-        // Table setup
-        String[] columnNames = {"ID", "Name", "Price", "Quantity", "Type", "Details"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-             @Override
-             public boolean isCellEditable(int row, int column) {
-               return false; // Make table cells not editable
-             }
-        };
+        // Table setup: the model reads straight from the inventory and
+        // updates itself from inventory events, so it is never rebuilt
+        tableModel = new InventoryTableModel(inventory);
         productTable = new JTable(tableModel);
+        // Prices are formatted only when a cell is actually painted
+        productTable.setDefaultRenderer(Double.class, new DefaultTableCellRenderer() {
+            {
+                setHorizontalAlignment(SwingConstants.RIGHT);
+            }
+
+            @Override
+            protected void setValue(Object value) {
+                setText(value == null ? "" : String.format("%.2f", (Double) value));
+            }
+        });
         productTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         productTable.getTableHeader().setReorderingAllowed(false);
         JScrollPane scrollPane = new JScrollPane(productTable);
@@ -217,10 +284,36 @@ public class InventoryManagementSystem extends JFrame {
             private void filter() {
                 String text = searchField.getText();
                 if (text.trim().length() == 0) {
+                    searchField.setForeground(filterForeground);
                     sorter.setRowFilter(null);
-                } else {
-                    // Filter by Name (column 1), case-insensitive
-                    sorter.setRowFilter(RowFilter.regexFilter("(?i)" + text, 1));
+                    return;
+                }
+                ProductQuery query;
+                try {
+                    query = ProductQuery.parse(text);
+                } catch (IllegalArgumentException e) {
+                    // Probably still being typed; keep the last valid filter
+                    searchField.setForeground(Color.RED);
+                    statusBarLabel.setText("Invalid filter: " + e.getMessage());
+                    return;
+                }
+                searchField.setForeground(filterForeground);
+                // Rows are tested on the stored values, so the filter follows later changes
+                sorter.setRowFilter(new RowFilter<InventoryTableModel, Integer>() {
+                    @Override
+                    public boolean include(Entry<? extends InventoryTableModel, ? extends Integer> entry) {
+                        try {
+                            return inventory.matchesAt(entry.getIdentifier(), query);
+                        } catch (IndexOutOfBoundsException e) {
+                            return false; // Row removed by another thread; a resync is pending
+                        }
+                    }
+                });
+                // The table shows every match; only the sort carries over, where it has a column
+                int sortColumn = sortColumn(query.sortField);
+                if (sortColumn >= 0) {
+                    sorter.setSortKeys(Collections.singletonList(new RowSorter.SortKey(sortColumn,
+                            query.descending ? SortOrder.DESCENDING : SortOrder.ASCENDING)));
                 }
             }
         });
@@ -229,6 +322,23 @@ public class InventoryManagementSystem extends JFrame {
         return inventoryPanel;
     }
 
+    /**
+     * Maps a query sort field to its table column, or -1 if the table has none.
+     */
+    private static int sortColumn(ProductQuery.Field field) {
+        if (field == null) {
+            return -1;
+        }
+        switch (field) {
+            case ID: return InventoryTableModel.ID_COLUMN;
+            case NAME: return InventoryTableModel.NAME_COLUMN;
+            case PRICE: return InventoryTableModel.PRICE_COLUMN;
+            case QUANTITY: return InventoryTableModel.QUANTITY_COLUMN;
+            case TYPE: return InventoryTableModel.TYPE_COLUMN;
+            default: return -1;
+        }
+    }
+
     /**
      * Creates the dashboard panel with key metrics.
      */
@@ -275,6 +385,16 @@ public class InventoryManagementSystem extends JFrame {
         categoryStatsPanel.setAlignmentX(Component.CENTER_ALIGNMENT);
         
         dashboardPanel.add(categoryStatsPanel);
+        dashboardPanel.add(Box.createRigidArea(new Dimension(0, 20)));
+
+        // --- Expiring Soon Panel (Groceries) ---
+        expiringPanel = new JPanel();
+        expiringPanel.setLayout(new BoxLayout(expiringPanel, BoxLayout.Y_AXIS));
+        expiringPanel.setBorder(BorderFactory.createTitledBorder("Expiring Soon"));
+        expiringPanel.setMaximumSize(new Dimension(400, 220)); // Constrain size
+        expiringPanel.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+        dashboardPanel.add(expiringPanel);
         dashboardPanel.add(Box.createVerticalGlue()); // Push to top
         
         return dashboardPanel;
@@ -282,56 +402,87 @@ public class InventoryManagementSystem extends JFrame {
 
 
     /**
-     * Refreshes table, graphs, and dashboard.
+     * Schedules a refresh of the graphs and dashboard with the next frame.
+     * Inventory changes do this by themselves; the table keeps itself up to
+     * date through inventory events.
      */
     private void refreshAllData() {
-        refreshTable();
-        refreshDashboard();
-        
-        // Only refresh graphs if the panel exists
-        if (graphPanel != null) {
-            graphPanel.refreshGraphs();
+        refreshScheduler.requestRefresh(RefreshScheduler.Region.DASHBOARD, RefreshScheduler.Region.CHARTS);
+    }
+
+    /**
+     * Refreshes the dashboard when the date changes, since products expire
+     * at midnight without any inventory change, then schedules the next one.
+     */
+    private void scheduleDateChangeRefresh() {
+        LocalDateTime now = LocalDateTime.now();
+        long delay = Duration.between(now, now.toLocalDate().plusDays(1).atStartOfDay()).toMillis() + 1000;
+        Timer timer = new Timer((int) Math.min(Integer.MAX_VALUE, delay), e -> {
+            dashboardVersion = -1; // the inventory did not change, but the figures did
+            refreshScheduler.requestRefresh(RefreshScheduler.Region.DASHBOARD);
+            scheduleDateChangeRefresh();
+        });
+        timer.setRepeats(false);
+        timer.start();
+    }
+
+    /**
+     * The figures shown on the dashboard, read in one go.
+     */
+    private static final class DashboardData {
+        final double totalValue;
+        final int totalProducts;
+        final long lowStockCount;
+        final Map<String, Long> categoryCounts;
+        final ExpiryReport expired;
+        final ExpiryReport expiringSoon;
+
+        DashboardData(double totalValue, int totalProducts, long lowStockCount, Map<String, Long> categoryCounts,
+                ExpiryReport expired, ExpiryReport expiringSoon) {
+            this.totalValue = totalValue;
+            this.totalProducts = totalProducts;
+            this.lowStockCount = lowStockCount;
+            this.categoryCounts = categoryCounts;
+            this.expired = expired;
+            this.expiringSoon = expiringSoon;
         }
     }
 
     /**
-     * (Re)populates the JTable with data from the inventory.
+     * Reads the dashboard figures from the inventory; runs off the EDT.
+     * Returns null if the inventory did not change since the last refresh.
      */
-    private void refreshTable() {
-        tableModel.setRowCount(0); // Clear existing data
-        List<Product> products = inventory.getAllProducts();
-        for (Product product : products) {
-            Object[] row = {
-                    product.getId(),
-                    product.getName(),
-                    String.format("%.2f", product.getPrice()),
-                    product.getQuantity(),
-                    product.getType(),
-                    product.getSpecificDetail()
-            };
-            tableModel.addRow(row);
+    private DashboardData computeDashboard() {
+        long version = inventory.getVersion();
+        if (version == dashboardVersion) {
+            return null;
         }
+        dashboardVersion = version;
+        return new DashboardData(inventory.getTotalInventoryValue(), inventory.size(),
+                inventory.getLowStockCount(Inventory.DEFAULT_LOW_STOCK_THRESHOLD), inventory.getCategoryCounts(),
+                inventory.getExpired(0), inventory.getExpiringWithin(EXPIRING_SOON_DAYS, EXPIRING_SOON_LISTED));
     }
-    
+
     /**
      * Refreshes all the labels on the dashboard panel.
      */
-    private void refreshDashboard() {
+    private void showDashboard(DashboardData data) {
         if (totalValueLabel == null) return; // Don't refresh if UI not built yet
 
         // 1. Refresh Key Metrics
-        totalValueLabel.setText(String.format("Total Inventory Value: $%.2f", inventory.getTotalInventoryValue()));
-        totalItemsLabel.setText("Total Product Lines: " + inventory.getAllProducts().size());
-        lowStockLabel.setText("Items Low on Stock (<= 10): " + inventory.getLowStockCount(10));
+        totalValueLabel.setText(String.format("Total Inventory Value: $%.2f", data.totalValue));
+        totalItemsLabel.setText("Total Product Lines: " + data.totalProducts);
+        lowStockLabel.setText("Items Low on Stock (<= " + Inventory.DEFAULT_LOW_STOCK_THRESHOLD + "): "
+                + data.lowStockCount);
 
         // 2. Refresh Category Stats
         categoryStatsPanel.removeAll(); // Clear old stats
         
         // --- FIX WAS HERE ---
         // Added Map import at top of file
-        Map<String, Long> counts = inventory.getCategoryCounts();
+        Map<String, Long> counts = data.categoryCounts;
         // --- END FIX ---
-        int totalProducts = inventory.getAllProducts().size();
+        int totalProducts = data.totalProducts;
         
         if (totalProducts == 0) {
             categoryStatsPanel.add(new JLabel("No products in inventory."));
@@ -354,24 +505,62 @@ public class InventoryManagementSystem extends JFrame {
         
         categoryStatsPanel.revalidate();
         categoryStatsPanel.repaint();
+
+        // 3. Refresh Expiring Soon
+        expiringPanel.removeAll();
+        expiringPanel.add(expiryLabel("Already expired", data.expired));
+        expiringPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+        expiringPanel.add(expiryLabel("Next " + EXPIRING_SOON_DAYS + " days", data.expiringSoon));
+        for (Product product : data.expiringSoon.getProducts()) {
+            JLabel productLabel = new JLabel("   " + ((Groceries) product).getExpirationDate() + "  "
+                    + product.getName() + " (ID:" + product.getId() + "), qty " + product.getQuantity());
+            productLabel.setFont(new Font("Arial", Font.PLAIN, 12));
+            expiringPanel.add(productLabel);
+        }
+        int unlisted = data.expiringSoon.getCount() - data.expiringSoon.getProducts().size();
+        if (unlisted > 0) {
+            expiringPanel.add(new JLabel("   ... and " + unlisted + " more"));
+        }
+        expiringPanel.revalidate();
+        expiringPanel.repaint();
+    }
+
+    private static JLabel expiryLabel(String title, ExpiryReport report) {
+        JLabel label = new JLabel(String.format("%s: %d products, %d units, $%.2f at risk",
+                title, report.getCount(), report.getTotalQuantity(), report.getTotalValue()));
+        label.setFont(new Font("Arial", Font.PLAIN, 14));
+        return label;
     }
 
 
     // --- Action Handlers ---
 
+    /**
+     * Blocks edits while the inventory is still loading.
+     * @return true if the inventory may be modified.
+     */
+    private boolean checkNotLoading() {
+        if (loading) {
+            statusBarLabel.setText("Please wait until the inventory has finished loading.");
+            return false;
+        }
+        return true;
+    }
+
     private void showAddProductDialog() {
+        if (!checkNotLoading()) return;
         ProductDialog dialog = new ProductDialog(this);
         dialog.setVisible(true);
         
         Product newProduct = dialog.getProduct(); // Will be null if cancelled
         if (newProduct != null) {
             inventory.addProduct(newProduct);
-            refreshAllData();
             statusBarLabel.setText("Added product: " + newProduct.getName());
         }
     }
     
     private void showUpdateProductDialog() {
+        if (!checkNotLoading()) return;
         int selectedViewRow = productTable.getSelectedRow();
         if (selectedViewRow == -1) {
             JOptionPane.showMessageDialog(this, "Please select a product to update.", "No Product Selected", JOptionPane.WARNING_MESSAGE);
@@ -380,19 +569,19 @@ public class InventoryManagementSystem extends JFrame {
         
         // Convert view row to model row in case of sorting
         int modelRow = productTable.convertRowIndexToModel(selectedViewRow);
-        int productId = (int) tableModel.getValueAt(modelRow, 0);
+        int productId = tableModel.getProductAt(modelRow).getId();
 
         try {
-            Product productToEdit = inventory.findProductById(productId);
+            // Edit a copy: stored products only change through updateProduct
+            Product productToEdit = inventory.findProductById(productId).copy();
             
             ProductDialog dialog = new ProductDialog(this, productToEdit);
             dialog.setVisible(true);
             
             Product updatedProduct = dialog.getProduct(); // Will be null if cancelled
             if (updatedProduct != null) {
-                // The dialog has modified the productToEdit object
+                // The dialog has modified the copy in productToEdit
                 inventory.updateProduct(updatedProduct); 
-                refreshAllData();
                 statusBarLabel.setText("Updated product ID: " + updatedProduct.getId());
             }
         } catch (ProductNotFoundException ex) {
@@ -401,6 +590,7 @@ public class InventoryManagementSystem extends JFrame {
     }
 
     private void deleteSelectedProduct() {
+        if (!checkNotLoading()) return;
         int selectedViewRow = productTable.getSelectedRow();
         if (selectedViewRow == -1) {
             JOptionPane.showMessageDialog(this, "Please select a product to delete.", "No Product Selected", JOptionPane.WARNING_MESSAGE);
@@ -408,8 +598,9 @@ public class InventoryManagementSystem extends JFrame {
         }
         
         int modelRow = productTable.convertRowIndexToModel(selectedViewRow);
-        int productId = (int) tableModel.getValueAt(modelRow, 0);
-        String productName = (String) tableModel.getValueAt(modelRow, 1);
+        Product selected = tableModel.getProductAt(modelRow);
+        int productId = selected.getId();
+        String productName = selected.getName();
 
         int confirm = JOptionPane.showConfirmDialog(this, 
             "Are you sure you want to delete '" + productName + "' (ID: " + productId + ")?", 
@@ -420,7 +611,6 @@ public class InventoryManagementSystem extends JFrame {
         if (confirm == JOptionPane.YES_OPTION) {
             try {
                 inventory.removeProduct(productId);
-                refreshAllData();
                 statusBarLabel.setText("Deleted product ID: " + productId);
             } catch (ProductNotFoundException ex) {
                 JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
@@ -442,37 +632,143 @@ public class InventoryManagementSystem extends JFrame {
 
     // --- Background Tasks (SwingWorker) ---
 
+    /**
+     * Streams the inventory in: the worker parses batches in the background and
+     * publishes them, and each batch is appended on the EDT as it arrives, so
+     * the table, dashboard and status bar fill in while the file is read.
+     */
     private void loadDataWithWorker() {
         statusBarLabel.setText("Loading inventory...");
-        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        loading = true;
+        loadProgressBar.setValue(0);
+        loadProgressBar.setVisible(true);
+        Metrics.Span loadSpan = Metrics.global().timer("ui.load").begin();
+        inventory.beginLoad();
 
-        SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
+        SwingWorker<Integer, List<Product>> worker = new SwingWorker<Integer, List<Product>>() {
             @Override
-            protected String doInBackground() throws Exception {
-                try {
-                    inventory.loadFromFile();
-                    return "Inventory loaded successfully.";
-                } catch (IOException e) {
-                    return "Error loading file: " + e.getMessage();
+            @SuppressWarnings("unchecked")
+            protected Integer doInBackground() throws Exception {
+                return inventory.readSnapshotBatches(batch -> publish(batch),
+                        fraction -> setProgress((int) Math.round(fraction * 100)));
+            }
+
+            @Override
+            protected void process(List<List<Product>> batches) {
+                for (List<Product> batch : batches) {
+                    inventory.addLoadedBatch(batch);
                 }
+                statusBarLabel.setText("Loading inventory... " + inventory.size() + " products");
             }
 
             @Override
             protected void done() {
                 try {
-                    String result = get();
-                    statusBarLabel.setText(result);
+                    inventory.finishLoad(get());
+                    loadSpan.end(inventory.size());
+                    statusBarLabel.setText("Inventory loaded successfully.");
+                } catch (ExecutionException e) {
+                    loadFailed = true;
+                    statusBarLabel.setText("Error loading file: " + e.getCause().getMessage());
                 } catch (Exception e) {
+                    loadFailed = true;
                     statusBarLabel.setText("Failed to load data: " + e.getMessage());
                 }
+                loading = false;
+                loadProgressBar.setVisible(false);
+                if (!loadFailed) {
+                    startAutoSave();
+                    startHttpServer();
+                }
                 refreshAllData();
-                setCursor(Cursor.getDefaultCursor());
             }
         };
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                loadProgressBar.setValue((Integer) e.getNewValue());
+            }
+        });
         worker.execute();
     }
     
+    private void startAutoSave() {
+        autoSaver = new AutoSaver(inventory);
+        autoSaver.setStatusListener(message -> SwingUtilities.invokeLater(() -> statusBarLabel.setText(message)));
+        autoSaver.start();
+    }
+
+    private void startHttpServer() {
+        try {
+            httpServer = InventoryHttpServer.startFromSystemProperties(inventory);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to start the HTTP API: " + e.getMessage());
+            statusBarLabel.setText("Failed to start the HTTP API: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the HTTP API, then saves the changes the autosaver has not saved
+     * yet before the window closes.
+     */
+    private void saveOnExit() {
+        if (httpServer != null) {
+            httpServer.close();
+            httpServer = null;
+        }
+        if (autoSaver == null) {
+            return;
+        }
+        try {
+            autoSaver.close();
+        } catch (IOException e) {
+            System.err.println("Failed to save on exit: " + e.getMessage());
+            JOptionPane.showMessageDialog(this, "Failed to save the latest changes: " + e.getMessage(),
+                    "Save Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Merges a CSV or binary product file into the inventory: products with a
+     * known ID replace the existing ones, the rest are added. The file is read
+     * in the background and applied as one batch, so the UI refreshes once.
+     */
+    private void importProductsWithWorker() {
+        if (!checkNotLoading()) return;
+        JFileChooser chooser = new JFileChooser(".");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path file = chooser.getSelectedFile().toPath();
+        statusBarLabel.setText("Importing " + file.getFileName() + "...");
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+
+        SwingWorker<List<Product>, Void> worker = new SwingWorker<List<Product>, Void>() {
+            @Override
+            protected List<Product> doInBackground() throws Exception {
+                return Inventory.readProducts(file);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    List<Product> products = get();
+                    inventory.mergeAll(products);
+                    statusBarLabel.setText("Imported " + products.size() + " products from " + file.getFileName());
+                } catch (ExecutionException e) {
+                    statusBarLabel.setText("Error importing file: " + e.getCause().getMessage());
+                } catch (Exception e) {
+                    statusBarLabel.setText("Failed to import products: " + e.getMessage());
+                }
+                setCursor(Cursor.getDefaultCursor());
+            }
+        };
+        worker.execute();
+    }
+
     private void saveDataWithWorker() {
+        if (!checkNotLoading()) return;
+        if (loadFailed) {
+            statusBarLabel.setText("Saving is disabled because the inventory did not load completely.");
+            return;
+        }
         statusBarLabel.setText("Saving inventory...");
         setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
 
@@ -502,10 +798,40 @@ public class InventoryManagementSystem extends JFrame {
     }
 
 
+    /**
+     * Shows the timers and counters of Metrics in a window that updates
+     * every second while it is open.
+     */
+    private void showDiagnostics() {
+        JTextArea text = new JTextArea(Metrics.global().formatReport(), 24, 90);
+        text.setEditable(false);
+        text.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        JDialog dialog = new JDialog(this, "Diagnostics", false);
+        dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        dialog.add(new JScrollPane(text), BorderLayout.CENTER);
+        dialog.add(new JLabel(" Latencies of successful operations since start. Run with -D"
+                + Metrics.FILE_PROPERTY + "=<file> to dump them periodically."), BorderLayout.SOUTH);
+
+        Timer timer = new Timer(1000, e -> text.setText(Metrics.global().formatReport()));
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                timer.stop();
+            }
+        });
+        timer.start();
+        dialog.pack();
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+
     /**
      * Main method. Sets up the FlatLaf Look and Feel.
      */
     public static void main(String[] args) {
+        Metrics.startFromSystemProperties();
+
         // Set up the modern Look and Feel *before* creating the GUI
         try {
             // Use FlatLightLaf by default
@@ -0,0 +1,47 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JDK Flight Recorder event for one timed operation (see Metrics.Timer), so
+ * that recordings show inventory work next to GC, I/O and lock events.
+ * Enabled by default whenever a recording runs, e.g. with
+ * java -XX:StartFlightRecording=filename=inventory.jfr ..., for operations
+ * of 1 ms or more; single mutations take about a microsecond and would
+ * flood the recording. Lower the threshold with the recording setting
+ * inventory.Operation#threshold=0 ms to get every operation.
+ */
+@Name("inventory.Operation")
+@Label("Inventory Operation")
+@Category("Inventory")
+@Description("A timed inventory operation: a mutation, load, save, query or UI refresh")
+@StackTrace(false)
+@Threshold("1 ms")
+final class InventoryOperationEvent extends jdk.jfr.Event {
+    private static final EventType TYPE = EventType.getEventType(InventoryOperationEvent.class);
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Products")
+    @Description("Number of products the operation worked on")
+    int products;
+
+    /**
+     * Starts an event for an operation, or returns null if no recording
+     * wants it, so that operations cost nothing extra without JFR.
+     */
+    static InventoryOperationEvent begin(String operation) {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        InventoryOperationEvent event = new InventoryOperationEvent();
+        event.operation = operation;
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,112 @@
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * A read-only view of an Inventory's products at one version, in row order.
+ * Taking one shares the inventory's storage instead of copying it (see
+ * Inventory.snapshot), and later changes never show up in it, so it can be
+ * iterated on any thread without locking.
+ *
+ * Consumers can compare getVersion() with the version they last processed
+ * and skip the work when it did not change.
+ */
+public final class InventorySnapshot extends AbstractList<Product> implements RandomAccess {
+    private final ProductStore store;
+    private final long version;
+
+    InventorySnapshot(ProductStore store, long version) {
+        this.store = store;
+        this.version = version;
+    }
+
+    /**
+     * Returns the inventory version this snapshot shows (see Inventory.getVersion).
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the product at a row. In columnar mode this builds a detached view.
+     */
+    @Override
+    public Product get(int row) {
+        return store.get(row);
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    // Single-field row accessors, as on Inventory
+
+    public int getIdAt(int row) {
+        return store.idAt(row);
+    }
+
+    public String getNameAt(int row) {
+        return store.nameAt(row);
+    }
+
+    public String getTypeAt(int row) {
+        return store.typeAt(row);
+    }
+
+    public double getPriceAt(int row) {
+        return store.priceAt(row);
+    }
+
+    public int getQuantityAt(int row) {
+        return store.quantityAt(row);
+    }
+
+    /**
+     * Returns the length of a row's name in UTF-8 bytes.
+     */
+    public int getNameUtf8LengthAt(int row) {
+        return store.nameUtf8LengthAt(row);
+    }
+
+    /**
+     * Puts a row's name as UTF-8 into a buffer with room for it, if the
+     * storage keeps names encoded (see ProductStore.putNameUtf8At).
+     * @return Whether it did.
+     */
+    public boolean putNameUtf8At(int row, ByteBuffer buffer) {
+        return store.putNameUtf8At(row, buffer);
+    }
+
+    /**
+     * Returns the type tag of a row (ProductStore.ELECTRONICS or GROCERIES, 0 otherwise).
+     */
+    public byte getTypeTagAt(int row) {
+        return store.typeTagAt(row);
+    }
+
+    /**
+     * Returns the warranty months of an Electronics row, or Electronics.NO_WARRANTY.
+     */
+    public int getWarrantyAt(int row) {
+        return store.warrantyAt(row);
+    }
+
+    /**
+     * Returns the expiration date text of a Groceries row, or null.
+     */
+    public String getExpirationDateAt(int row) {
+        return store.expiryTextAt(row);
+    }
+
+    public String getSpecificDetailAt(int row) {
+        return store.detailAt(row);
+    }
+
+    /**
+     * Appends the CSV form of a row (see Product.appendCsv) without building the product.
+     */
+    public void appendCsvAt(int row, StringBuilder out) {
+        store.appendCsvAt(row, out);
+    }
+}
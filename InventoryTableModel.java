@@ -0,0 +1,258 @@
+import java.util.BitSet;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table model that reads columns directly from an Inventory instead of copying rows.
+ * Model rows are inventory rows. The model listens to the inventory and fires
+ * row-level events for the rows that changed, so editing one product repaints
+ * one row. Cell values are raw (e.g. price is a Double); formatting is left to
+ * the table's renderers, so only visible cells are ever formatted.
+ */
+public class InventoryTableModel extends AbstractTableModel implements InventoryListener {
+    private static final long serialVersionUID = 1L;
+
+    public static final int ID_COLUMN = 0;
+    public static final int NAME_COLUMN = 1;
+    public static final int PRICE_COLUMN = 2;
+    public static final int QUANTITY_COLUMN = 3;
+    public static final int TYPE_COLUMN = 4;
+    public static final int DETAILS_COLUMN = 5;
+
+    private static final String[] COLUMN_NAMES = {"ID", "Name", "Price", "Quantity", "Type", "Details"};
+    private static final Class<?>[] COLUMN_CLASSES = {Integer.class, String.class, Double.class, Integer.class, String.class, String.class};
+
+    /** Changed rows above which changes made off the EDT become one full resync. */
+    static final int MAX_DIRTY_ROWS = 1000;
+
+    private final Inventory inventory;
+    // Row count as last announced to the table; only touched on the EDT
+    private int rowCount;
+    private volatile RefreshScheduler refreshScheduler;
+
+    // Changes made off the EDT and not yet announced; guarded by pendingLock
+    private final Object pendingLock = new Object();
+    private BitSet dirtyRows = new BitSet();
+    private int dirtyCount;
+    private int lowestRowCount = Integer.MAX_VALUE; // fewest rows since the last announcement
+    private boolean resyncPending;
+    private boolean announcePosted; // without a scheduler: announcePending is already queued
+
+    public InventoryTableModel(Inventory inventory) {
+        this.inventory = inventory;
+        this.rowCount = inventory.size();
+        inventory.addInventoryListener(this);
+    }
+
+    /**
+     * Routes the row events for changes made off the EDT through a refresh
+     * scheduler, so a burst of them is announced once per frame.
+     */
+    public void setRefreshScheduler(RefreshScheduler scheduler) {
+        scheduler.setView(RefreshScheduler.Region.TABLE, new RefreshScheduler.View<Boolean>() {
+            @Override
+            public Boolean compute() {
+                return Boolean.TRUE; // Nothing to gather: the changed rows are read on the EDT
+            }
+
+            @Override
+            public void apply(Boolean changed) {
+                announcePending();
+            }
+        });
+        this.refreshScheduler = scheduler;
+    }
+
+    /**
+     * Returns the product shown in the given model row.
+     */
+    public Product getProductAt(int row) {
+        return inventory.getProductAt(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return COLUMN_CLASSES[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false; // Make table cells not editable
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        if (column < 0 || column >= COLUMN_NAMES.length) {
+            throw new IndexOutOfBoundsException("Invalid column: " + column);
+        }
+        try {
+            // Read single fields, so columnar storage does not build a product per cell
+            switch (column) {
+                case ID_COLUMN: return inventory.getIdAt(row);
+                case NAME_COLUMN: return inventory.getNameAt(row);
+                case PRICE_COLUMN: return inventory.getPriceAt(row);
+                case QUANTITY_COLUMN: return inventory.getQuantityAt(row);
+                case TYPE_COLUMN: return inventory.getTypeAt(row);
+                default: return inventory.getSpecificDetailAt(row);
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // Another thread removed rows; the resync it queued is still pending
+            return null;
+        }
+    }
+
+    // --- InventoryListener ---
+    // Changes made off the EDT cannot be replayed event by event, because the
+    // inventory has already moved on. Instead the rows they touched are
+    // collected, and announced on the EDT against the inventory as it is
+    // then: rows past the new row count as deleted, new rows as inserted,
+    // and the rest that changed as updated. Too many changes, or a bulk
+    // change, fall back to one full resync.
+
+    private void announceLater() {
+        RefreshScheduler scheduler = refreshScheduler;
+        if (scheduler != null) {
+            scheduler.requestRefresh(RefreshScheduler.Region.TABLE);
+            return;
+        }
+        synchronized (pendingLock) {
+            if (announcePosted) {
+                return;
+            }
+            announcePosted = true;
+        }
+        SwingUtilities.invokeLater(this::announcePending);
+    }
+
+    /**
+     * Records a changed row, and the row count it left, for announcePending.
+     * @param rowCount Row count right after the change.
+     */
+    private void markDirty(int row, int rowCount) {
+        synchronized (pendingLock) {
+            lowestRowCount = Math.min(lowestRowCount, rowCount);
+            if (row >= 0 && !resyncPending && !dirtyRows.get(row)) {
+                dirtyRows.set(row);
+                resyncPending = ++dirtyCount > MAX_DIRTY_ROWS;
+            }
+        }
+        announceLater();
+    }
+
+    private void markResync() {
+        synchronized (pendingLock) {
+            resyncPending = true;
+        }
+        announceLater();
+    }
+
+    /**
+     * Fires the row events for the changes made off the EDT since the last
+     * call. Runs on the EDT.
+     */
+    private void announcePending() {
+        BitSet rows;
+        int lowest;
+        boolean resync;
+        synchronized (pendingLock) {
+            rows = dirtyRows;
+            lowest = lowestRowCount;
+            resync = resyncPending;
+            dirtyRows = new BitSet();
+            dirtyCount = 0;
+            lowestRowCount = Integer.MAX_VALUE;
+            resyncPending = false;
+            announcePosted = false;
+        }
+        int oldCount = rowCount;
+        int newCount = inventory.size();
+        // Rows between the fewest rows seen and both counts were removed and refilled
+        int kept = Math.min(oldCount, newCount);
+        int refilled = Math.min(lowest, kept);
+        if (resync || kept - refilled > MAX_DIRTY_ROWS) {
+            inventoryChanged();
+            return;
+        }
+        if (newCount < oldCount) {
+            rowCount = newCount;
+            fireTableRowsDeleted(newCount, oldCount - 1);
+        }
+        for (int row = rows.nextSetBit(0); row >= 0 && row < refilled; row = rows.nextSetBit(row + 1)) {
+            fireTableRowsUpdated(row, row);
+        }
+        if (refilled < kept) {
+            fireTableRowsUpdated(refilled, kept - 1);
+        }
+        if (newCount > oldCount) {
+            rowCount = newCount;
+            fireTableRowsInserted(oldCount, newCount - 1);
+        }
+    }
+
+    @Override
+    public void productAdded(Product product, int row) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            markDirty(-1, row); // An appended row is announced from the row count
+            return;
+        }
+        rowCount++;
+        fireTableRowsInserted(row, row);
+    }
+
+    @Override
+    public void productsAdded(int firstRow, int lastRow) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            markDirty(-1, firstRow); // Appended rows are announced from the row count
+            return;
+        }
+        rowCount += lastRow - firstRow + 1;
+        fireTableRowsInserted(firstRow, lastRow);
+    }
+
+    @Override
+    public void productUpdated(Product product, int row) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            markDirty(row, Integer.MAX_VALUE);
+            return;
+        }
+        fireTableRowsUpdated(row, row);
+    }
+
+    @Override
+    public void productRemoved(Product product, int row, int lastRow) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            markDirty(row < lastRow ? row : -1, lastRow);
+            return;
+        }
+        rowCount--;
+        fireTableRowsDeleted(lastRow, lastRow);
+        if (row != lastRow) {
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    @Override
+    public void inventoryChanged() {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            markResync();
+            return;
+        }
+        rowCount = inventory.size();
+        fireTableDataChanged();
+    }
+}
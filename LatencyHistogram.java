@@ -0,0 +1,119 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size, log-linear histogram of durations in nanoseconds, in the
+ * style of HdrHistogram: values below 32 get a bucket each, and every power
+ * of two above is split into 16 buckets, so any value is reported within
+ * about 6% of its real value. The whole long range fits in 960 buckets.
+ *
+ * Recording is lock-free and allocation-free; safe for concurrent use.
+ */
+public class LatencyHistogram {
+    private static final int LINEAR_BUCKETS = 32; // values 0..31 exactly
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS; // per power of two
+    private static final int FIRST_EXPONENT = 5; // 2^5 == LINEAR_BUCKETS
+    private static final int BUCKETS = LINEAR_BUCKETS + (63 - FIRST_EXPONENT) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records one duration. Negative values count as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Copies the current counts. Recordings that race with the copy may be
+     * missing from some of its figures, but the copy itself is consistent.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, sum.sum(), max.get());
+    }
+
+    private static int bucketOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the largest value that falls into a bucket.
+     */
+    private static long highestValueIn(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = FIRST_EXPONENT + (bucket - LINEAR_BUCKETS) / SUB_BUCKETS;
+        long sub = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long lowest = (1L << exponent) | (sub << (exponent - SUB_BITS));
+        return lowest + (1L << (exponent - SUB_BITS)) - 1;
+    }
+
+    /**
+     * A point-in-time copy of a histogram.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /** Returns the sum of all recorded values, in nanoseconds. */
+        public long getSum() {
+            return sum;
+        }
+
+        /** Returns the largest recorded value, in nanoseconds (exact). */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the value at a percentile (0-100): the upper end of the
+         * bucket holding it, capped at the maximum. 0 if nothing was recorded.
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueIn(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Named latency timers, event counters and gauges for the running application.
+ *
+ * Timers keep a LatencyHistogram and also emit an InventoryOperationEvent
+ * while a JFR recording is running. Everything can be written in the
+ * Prometheus text exposition format, either on demand (writeText) or
+ * periodically to a file (startPeriodicDump), which node_exporter's textfile
+ * collector or any other scraper can pick up.
+ *
+ * Names are dotted, e.g. "inventory.add" or "ui.refresh.table.apply".
+ */
+public final class Metrics {
+
+    /** System property naming the file to dump the metrics to; no dump if unset. */
+    public static final String FILE_PROPERTY = "inventory.metrics.file";
+    /** System property with the dump interval in seconds. */
+    public static final String INTERVAL_PROPERTY = "inventory.metrics.interval";
+    public static final long DEFAULT_INTERVAL_SECONDS = 60;
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final Metrics GLOBAL = new Metrics();
+
+    // Sorted, so the output is stable from one dump to the next
+    private final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private ScheduledExecutorService dumper;
+    private volatile Path dumpFile;
+
+    /**
+     * Returns the registry shared by the whole application.
+     */
+    public static Metrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Returns the timer with a name, creating it on first use.
+     * Callers on hot paths should keep the result in a field.
+     */
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, Timer::new);
+    }
+
+    /**
+     * Returns the counter with a name, creating it on first use.
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Registers a gauge, replacing any gauge with the same name. The supplier
+     * is called on every dump, on the dumping thread.
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    // --- EXPOSITION ---
+
+    /**
+     * Writes every metric in the Prometheus text format: timers as the summary
+     * inventory_operation_seconds (plus a _max gauge), counters as
+     * inventory_events_total and gauges as inventory_gauge.
+     */
+    public void writeText(Writer out) throws IOException {
+        StringBuilder text = new StringBuilder();
+        Map<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+        for (Timer timer : timers.values()) {
+            snapshots.put(timer.getName(), timer.getHistogram().snapshot());
+        }
+        text.append("# HELP inventory_operation_seconds Duration of inventory operations and UI refreshes.\n");
+        text.append("# TYPE inventory_operation_seconds summary\n");
+        for (Map.Entry<String, LatencyHistogram.Snapshot> entry : snapshots.entrySet()) {
+            String label = "operation=\"" + entry.getKey() + "\"";
+            LatencyHistogram.Snapshot snapshot = entry.getValue();
+            for (double quantile : QUANTILES) {
+                sample(text, "inventory_operation_seconds", label + ",quantile=\"" + quantile + "\"",
+                        seconds(snapshot.getValueAtPercentile(quantile * 100)));
+            }
+            sample(text, "inventory_operation_seconds_sum", label, seconds(snapshot.getSum()));
+            sample(text, "inventory_operation_seconds_count", label, Long.toString(snapshot.getCount()));
+        }
+        text.append("# HELP inventory_operation_seconds_max Longest inventory operation or UI refresh.\n");
+        text.append("# TYPE inventory_operation_seconds_max gauge\n");
+        for (Map.Entry<String, LatencyHistogram.Snapshot> entry : snapshots.entrySet()) {
+            sample(text, "inventory_operation_seconds_max", "operation=\"" + entry.getKey() + "\"",
+                    seconds(entry.getValue().getMax()));
+        }
+        text.append("# HELP inventory_events_total Inventory and UI events.\n");
+        text.append("# TYPE inventory_events_total counter\n");
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            sample(text, "inventory_events_total", "event=\"" + entry.getKey() + "\"",
+                    Long.toString(entry.getValue().sum()));
+        }
+        text.append("# HELP inventory_gauge Current inventory values.\n");
+        text.append("# TYPE inventory_gauge gauge\n");
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            sample(text, "inventory_gauge", "name=\"" + entry.getKey() + "\"",
+                    Long.toString(entry.getValue().getAsLong()));
+        }
+        out.write(text.toString());
+    }
+
+    private static void sample(StringBuilder text, String metric, String labels, String value) {
+        text.append(metric).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    /**
+     * Returns a human-readable table of the timers and counters, for the
+     * Diagnostics window.
+     */
+    public String formatReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "%-30s %9s %10s %10s %10s %10s%n",
+                "Operation", "Count", "p50 ms", "p99 ms", "Max ms", "Total ms"));
+        for (Timer timer : timers.values()) {
+            LatencyHistogram.Snapshot snapshot = timer.getHistogram().snapshot();
+            report.append(String.format(Locale.ROOT, "%-30s %9d %10.3f %10.3f %10.3f %10.1f%n",
+                    timer.getName(), snapshot.getCount(),
+                    snapshot.getValueAtPercentile(50) / 1e6, snapshot.getValueAtPercentile(99) / 1e6,
+                    snapshot.getMax() / 1e6, snapshot.getSum() / 1e6));
+        }
+        report.append(String.format(Locale.ROOT, "%n%-30s %9s%n", "Event", "Count"));
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            report.append(String.format(Locale.ROOT, "%-30s %9d%n", entry.getKey(), entry.getValue().sum()));
+        }
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            report.append(String.format(Locale.ROOT, "%-30s %9d%n", entry.getKey(), entry.getValue().getAsLong()));
+        }
+        return report.toString();
+    }
+
+    // --- PERIODIC DUMP ---
+
+    /**
+     * Writes the metrics to a file through a temporary file that is then
+     * atomically renamed, so scrapers never read a half-written file.
+     * @throws IOException if a file writing error occurs.
+     */
+    public void dumpTo(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writeText(out);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Dumps the metrics to a file every intervalSeconds on a daemon thread,
+     * and once more when the JVM shuts down. Replaces any earlier dump schedule.
+     */
+    public synchronized void startPeriodicDump(Path file, long intervalSeconds) {
+        if (dumper != null) {
+            dumper.shutdownNow();
+        } else {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::dumpOnExit, "inventory-metrics-exit"));
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumpFile = file;
+        dumper.scheduleAtFixedRate(() -> dump(file), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    private void dumpOnExit() {
+        Path file = dumpFile;
+        if (file != null) {
+            dump(file);
+        }
+    }
+
+    private void dump(Path file) {
+        try {
+            dumpTo(file);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to write metrics to " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts the periodic dump of the global registry if the
+     * inventory.metrics.file system property is set, every
+     * inventory.metrics.interval seconds (default 60).
+     */
+    public static void startFromSystemProperties() {
+        String file = System.getProperty(FILE_PROPERTY);
+        if (file == null || file.trim().isEmpty()) {
+            return;
+        }
+        long interval = DEFAULT_INTERVAL_SECONDS;
+        String value = System.getProperty(INTERVAL_PROPERTY);
+        if (value != null) {
+            try {
+                interval = Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                interval = 0;
+            }
+            if (interval <= 0) {
+                System.err.println("Ignoring " + INTERVAL_PROPERTY + "=" + value
+                        + "; using " + DEFAULT_INTERVAL_SECONDS + " seconds.");
+                interval = DEFAULT_INTERVAL_SECONDS;
+            }
+        }
+        GLOBAL.startPeriodicDump(Paths.get(file.trim()), interval);
+    }
+
+    // --- TIMERS ---
+
+    /**
+     * Times one kind of operation. Use as
+     * <pre>
+     *     Metrics.Span span = TIMER.begin();
+     *     ... work ...
+     *     span.end(products);
+     * </pre>
+     * Spans that are never ended (e.g. because the operation threw) are not recorded.
+     */
+    public static final class Timer {
+        private final String name;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private Timer(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        public Span begin() {
+            return new Span(this, InventoryOperationEvent.begin(name));
+        }
+    }
+
+    /**
+     * One running operation of a Timer.
+     */
+    public static final class Span {
+        private final Timer timer;
+        private final InventoryOperationEvent event; // null unless JFR is recording it
+        private final long startNanos = System.nanoTime();
+
+        private Span(Timer timer, InventoryOperationEvent event) {
+            this.timer = timer;
+            this.event = event;
+        }
+
+        /**
+         * Records the operation's duration.
+         * @param products The number of products it worked on, for the JFR event.
+         */
+        public void end(int products) {
+            timer.histogram.record(System.nanoTime() - startNanos);
+            if (event != null) {
+                event.products = products;
+                event.commit();
+            }
+        }
+    }
+}
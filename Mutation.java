@@ -0,0 +1,54 @@
+/**
+ * One change in a batch passed to Inventory.applyBatch.
+ */
+public final class Mutation {
+
+    public enum Kind {
+        ADD,
+        UPDATE,
+        REMOVE
+    }
+
+    private final Kind kind;
+    private final int productId;
+    private final Product product; // null for REMOVE
+
+    private Mutation(Kind kind, int productId, Product product) {
+        this.kind = kind;
+        this.productId = productId;
+        this.product = product;
+    }
+
+    /**
+     * Adds a product; its ID must not be in the inventory yet.
+     */
+    public static Mutation add(Product product) {
+        return new Mutation(Kind.ADD, product.getId(), product);
+    }
+
+    /**
+     * Replaces the product with the same ID, as updateProduct does.
+     */
+    public static Mutation update(Product product) {
+        return new Mutation(Kind.UPDATE, product.getId(), product.copy());
+    }
+
+    public static Mutation remove(int productId) {
+        return new Mutation(Kind.REMOVE, productId, null);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    /**
+     * Returns the product to add or store, or null for a removal.
+     */
+    public Product getProduct() {
+        return product;
+    }
+}
@@ -0,0 +1,215 @@
+import java.util.Arrays;
+
+/**
+ * Product storage that keeps the Product objects themselves, plus the price,
+ * quantity and warranty or expiry day each slot was stored with (callers such as
+ * ProductDialog may change a product before it is stored again).
+ *
+ * Slots are kept in chunks of CHUNK_SIZE, which snapshot() shares instead of
+ * copying; the store copies a shared chunk the first time it writes to it
+ * afterwards.
+ */
+public class ObjectProductStore implements ProductStore {
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * CHUNK_SIZE slots. A chunk belongs to the store epoch it was created in;
+     * chunks from earlier epochs are shared with snapshots and must not be written.
+     */
+    private static final class Chunk {
+        final long epoch;
+        final Product[] products;
+        final int[] storedQuantity;
+        final double[] storedPrice;
+        final int[] storedIntDetail; // warranty months or expiry epoch day
+
+        Chunk(long epoch) {
+            this.epoch = epoch;
+            products = new Product[CHUNK_SIZE];
+            storedQuantity = new int[CHUNK_SIZE];
+            storedPrice = new double[CHUNK_SIZE];
+            storedIntDetail = new int[CHUNK_SIZE];
+        }
+
+        Chunk(long epoch, Chunk from) {
+            this.epoch = epoch;
+            products = from.products.clone();
+            storedQuantity = from.storedQuantity.clone();
+            storedPrice = from.storedPrice.clone();
+            storedIntDetail = from.storedIntDetail.clone();
+        }
+    }
+
+    private int size;
+    private Chunk[] chunks = new Chunk[4];
+    private long epoch; // advanced by snapshot()
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Product get(int slot) {
+        return chunk(slot).products[slot & CHUNK_MASK];
+    }
+
+    @Override
+    public int add(Product product) {
+        ensureCapacity(size + 1);
+        int slot = size++;
+        if (chunks[slot >>> CHUNK_SHIFT] == null) {
+            chunks[slot >>> CHUNK_SHIFT] = new Chunk(epoch);
+        }
+        storeValues(slot, product);
+        return slot;
+    }
+
+    @Override
+    public void set(int slot, Product product) {
+        chunk(slot);
+        storeValues(slot, product);
+    }
+
+    private void storeValues(int slot, Product product) {
+        Chunk c = writable(slot);
+        int i = slot & CHUNK_MASK;
+        c.products[i] = product;
+        c.storedQuantity[i] = product.getQuantity();
+        c.storedPrice[i] = product.getPrice();
+        c.storedIntDetail[i] = product instanceof Groceries
+                ? ((Groceries) product).getExpiryEpochDay()
+                : product instanceof Electronics ? ((Electronics) product).getWarrantyPeriod() : 0;
+    }
+
+    @Override
+    public void swapRemove(int slot) {
+        chunk(slot);
+        int last = --size;
+        Chunk from = chunks[last >>> CHUNK_SHIFT];
+        int j = last & CHUNK_MASK;
+        if (slot < last) {
+            Chunk c = writable(slot);
+            int i = slot & CHUNK_MASK;
+            c.products[i] = from.products[j];
+            c.storedQuantity[i] = from.storedQuantity[j];
+            c.storedPrice[i] = from.storedPrice[j];
+            c.storedIntDetail[i] = from.storedIntDetail[j];
+        }
+        if (j == 0) {
+            chunks[last >>> CHUNK_SHIFT] = null; // the last chunk is empty now
+        } else {
+            writable(last).products[j] = null; // no longer referenced by this store
+        }
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        chunks = new Chunk[4]; // snapshots may still read the old chunks
+    }
+
+    /**
+     * Shares the chunks in O(size / CHUNK_SIZE). Starting a new epoch makes
+     * this store copy a chunk before it next writes to it. Stored products
+     * are never changed in place by Inventory, so the snapshot stays consistent.
+     */
+    @Override
+    public ProductStore snapshot() {
+        ObjectProductStore copy = new ObjectProductStore();
+        copy.size = size;
+        copy.chunks = Arrays.copyOf(chunks, Math.max(1, chunkCount(size)));
+        epoch++;
+        copy.epoch = epoch; // its chunks are all older, so the copy would not write them either
+        return copy;
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        int needed = chunkCount(capacity);
+        if (needed > chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(needed, chunks.length * 2));
+        }
+    }
+
+    private static int chunkCount(int slots) {
+        return (int) (((long) slots + CHUNK_MASK) >>> CHUNK_SHIFT);
+    }
+
+    @Override
+    public int idAt(int slot) {
+        return get(slot).getId();
+    }
+
+    @Override
+    public double priceAt(int slot) {
+        return chunk(slot).storedPrice[slot & CHUNK_MASK];
+    }
+
+    @Override
+    public int quantityAt(int slot) {
+        return chunk(slot).storedQuantity[slot & CHUNK_MASK];
+    }
+
+    @Override
+    public String nameAt(int slot) {
+        return get(slot).getName();
+    }
+
+    @Override
+    public String typeAt(int slot) {
+        return get(slot).getType();
+    }
+
+    @Override
+    public byte typeTagAt(int slot) {
+        Product product = get(slot);
+        return product instanceof Electronics ? ELECTRONICS : product instanceof Groceries ? GROCERIES : 0;
+    }
+
+    @Override
+    public int expiryDayAt(int slot) {
+        Chunk c = chunk(slot);
+        int i = slot & CHUNK_MASK;
+        return c.products[i] instanceof Groceries ? c.storedIntDetail[i] : Groceries.NO_EXPIRY;
+    }
+
+    @Override
+    public int warrantyAt(int slot) {
+        Chunk c = chunk(slot);
+        int i = slot & CHUNK_MASK;
+        return c.products[i] instanceof Electronics ? c.storedIntDetail[i] : Electronics.NO_WARRANTY;
+    }
+
+    @Override
+    public String expiryTextAt(int slot) {
+        Product product = get(slot);
+        return product instanceof Groceries ? ((Groceries) product).getExpirationDate() : null;
+    }
+
+    /**
+     * Returns the chunk holding a slot, for reading.
+     */
+    private Chunk chunk(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Slot: " + slot + ", Size: " + size);
+        }
+        return chunks[slot >>> CHUNK_SHIFT];
+    }
+
+    /**
+     * Returns the chunk holding a slot, for writing: a chunk shared with a
+     * snapshot is replaced by a copy first.
+     */
+    private Chunk writable(int slot) {
+        int n = slot >>> CHUNK_SHIFT;
+        Chunk c = chunks[n];
+        if (c.epoch != epoch) {
+            c = new Chunk(epoch, c);
+            chunks[n] = c;
+        }
+        return c;
+    }
+}
@@ -7,17 +7,16 @@ public abstract class Product {
     private double price;
     private int quantity;
     private int id;
-    private static int idCounter = 0;
 
     /**
      * Main constructor for creating a new product.
-     * Auto-increments ID.
+     * Takes the next ID from the global IdAllocator.
      */
     public Product(String name, double price, int quantity) {
         this.name = name;
         this.price = price;
         this.quantity = quantity;
-        this.id = ++idCounter;
+        this.id = IdAllocator.global().nextId();
     }
 
     /**
@@ -36,19 +35,33 @@ public abstract class Product {
     
     /**
      * Returns the specific detail (e.g., warranty or expiry) for display.
+     * The texts are shared, so this normally allocates nothing.
      */
     public abstract String getSpecificDetail();
 
     /**
      * Returns the specific detail as an object for the edit dialog.
+     * @deprecated Boxes the detail; use the typed accessors of the subclasses
+     * (Electronics.getWarrantyPeriod, Groceries.getExpirationDate and
+     * Groceries.getExpiryEpochDay).
      */
+    @Deprecated
     public abstract Object getSpecificDetailObject();
 
     /**
      * Updates the specific detail from the edit dialog.
+     * @deprecated Parses the detail from its string form; use the typed
+     * setters of the subclasses.
      */
+    @Deprecated
     public abstract void setSpecificDetailObject(Object detail);
 
+    /**
+     * Returns a copy with the same ID, for editing without touching the
+     * product stored in the inventory.
+     */
+    public abstract Product copy();
+
 
     // Getters
     public String getName() { return name; }
@@ -63,25 +76,33 @@ public abstract class Product {
 
     /**
      * Updates the ID counter to the highest loaded ID.
+     * @deprecated Use IdAllocator.global().advanceTo(maxId).
      */
+    @Deprecated
     public static void updateIdCounter(int maxId) {
-        if (maxId > idCounter) {
-            idCounter = maxId;
-        }
+        IdAllocator.global().advanceTo(maxId);
     }
 
     /**
      * Generates a string representation for saving to a file.
      */
     public String toCSVString() {
-        // Format: ID,Type,Name,Price,Quantity
-        return String.join(",",
-                String.valueOf(id),
-                getType(),
-                getName(),
-                String.valueOf(getPrice()),
-                String.valueOf(getQuantity())
-        );
+        StringBuilder line = new StringBuilder(64);
+        appendCsv(line);
+        return line.toString();
+    }
+
+    /**
+     * Appends the toCSVString() form without building intermediate strings,
+     * so writers can reuse one buffer for every product.
+     */
+    public void appendCsv(StringBuilder out) {
+        // Format: ID,Type,Name,Price,Quantity (subclasses append their detail)
+        out.append(id).append(',')
+           .append(getType()).append(',')
+           .append(getName()).append(',')
+           .append(getPrice()).append(',')
+           .append(getQuantity());
     }
 
     @Override
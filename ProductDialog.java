@@ -122,7 +122,11 @@ public class ProductDialog extends JDialog {
         priceField.setText(String.valueOf(product.getPrice()));
         quantityField.setText(String.valueOf(product.getQuantity()));
         typeComboBox.setSelectedItem(product.getType());
-        specificField.setText(product.getSpecificDetailObject().toString());
+        if (product instanceof Electronics) {
+            specificField.setText(String.valueOf(((Electronics) product).getWarrantyPeriod()));
+        } else if (product instanceof Groceries) {
+            specificField.setText(((Groceries) product).getExpirationDate());
+        }
 
         // Disable type switching when editing
         typeComboBox.setEnabled(false); 
@@ -157,25 +161,36 @@ public class ProductDialog extends JDialog {
             if (price < 0 || quantity < 0) {
                 throw new IllegalArgumentException("Price and Quantity cannot be negative.");
             }
-            
+
+            // The type is fixed when editing, so both cases validate the same field
+            int warranty = 0;
+            String expiry = null;
+            if ("Electronics".equals(type)) {
+                warranty = Integer.parseInt(specificField.getText());
+                if (warranty < 0) throw new IllegalArgumentException("Warranty cannot be negative.");
+            } else {
+                expiry = specificField.getText();
+                if (!expiry.matches("\\d{4}-\\d{2}-\\d{2}")) {
+                    throw new IllegalArgumentException("Date format must be YYYY-MM-DD");
+                }
+            }
+
             // If we are editing, update the existing product object
             if (this.product != null) {
                 product.setName(name);
                 product.setPrice(price);
                 product.setQuantity(quantity);
-                product.setSpecificDetailObject(specificField.getText());
+                if (product instanceof Electronics) {
+                    ((Electronics) product).setWarrantyPeriod(warranty);
+                } else if (product instanceof Groceries) {
+                    ((Groceries) product).setExpirationDate(expiry);
+                }
             } 
             // If we are adding, create a new product object
             else {
                 if ("Electronics".equals(type)) {
-                    int warranty = Integer.parseInt(specificField.getText());
-                    if (warranty < 0) throw new IllegalArgumentException("Warranty cannot be negative.");
                     this.product = new Electronics(name, price, quantity, warranty);
                 } else {
-                    String expiry = specificField.getText();
-                    if (!expiry.matches("\\d{4}-\\d{2}-\\d{2}")) {
-                        throw new IllegalArgumentException("Date format must be YYYY-MM-DD");
-                    }
                     this.product = new Groceries(name, price, quantity, expiry);
                 }
             }
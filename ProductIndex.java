@@ -0,0 +1,195 @@
+import java.util.Arrays;
+
+/**
+ * Primitive int-keyed open-addressing hash index from product ID to list slot.
+ * Uses linear probing with backward-shift deletion, so there are no tombstones
+ * and lookups stay O(1) no matter how many products have been removed.
+ *
+ * Not thread-safe, but get() tolerates a concurrent writer well enough for
+ * Inventory's optimistic reads: it may return a wrong slot, which the failed
+ * stamp validation discards, but it always terminates. A rehash fills new
+ * tables before publishing them, and probes are bounded by the table size.
+ */
+public class ProductIndex {
+    private static final int EMPTY = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] slots; // EMPTY marks a free bucket
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public ProductIndex() {
+        this(MIN_CAPACITY);
+    }
+
+    public ProductIndex(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Returns the slot stored for the given ID, or -1 if the ID is not indexed.
+     */
+    public int get(int id) {
+        // Read each table once, and derive the mask from it, so a torn read stays in bounds
+        int[] keys = this.keys;
+        int[] slots = this.slots;
+        if (keys.length != slots.length) {
+            return EMPTY; // Tables of two generations; only during a rehash
+        }
+        int mask = slots.length - 1;
+        int i = bucket(id, mask);
+        for (int probes = 0; probes < slots.length && slots[i] != EMPTY; probes++) {
+            if (keys[i] == id) {
+                return slots[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    public boolean contains(int id) {
+        return get(id) != EMPTY;
+    }
+
+    /**
+     * Maps an ID to a slot, replacing any previous mapping.
+     * @return The previous slot, or -1 if the ID was not indexed.
+     */
+    public int put(int id, int slot) {
+        if (slot < 0) {
+            throw new IllegalArgumentException("Slot cannot be negative: " + slot);
+        }
+        int i = bucket(id);
+        while (slots[i] != EMPTY) {
+            if (keys[i] == id) {
+                int previous = slots[i];
+                slots[i] = slot;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = id;
+        slots[i] = slot;
+        if (++size > resizeAt) {
+            rehash(slots.length << 1);
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Removes an ID from the index.
+     * @return The slot it was mapped to, or -1 if the ID was not indexed.
+     */
+    public int remove(int id) {
+        int i = bucket(id);
+        while (slots[i] != EMPTY) {
+            if (keys[i] == id) {
+                int removed = slots[i];
+                shiftBack(i);
+                size--;
+                return removed;
+            }
+            i = (i + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Grows the table up front so that the given number of IDs fit without rehashing.
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize);
+        if (capacity > slots.length) {
+            rehash(capacity);
+        }
+    }
+
+    /**
+     * Closes the gap left at a removed bucket by moving later entries of the
+     * same probe run back, keeping every key reachable from its home bucket.
+     */
+    private void shiftBack(int gap) {
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            if (slots[i] == EMPTY) {
+                break;
+            }
+            int home = bucket(keys[i]);
+            // Move the entry only if its home bucket is not between the gap and its position
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                slots[gap] = slots[i];
+                gap = i;
+            }
+        }
+        slots[gap] = EMPTY;
+    }
+
+    private int bucket(int id) {
+        return bucket(id, mask);
+    }
+
+    private static int bucket(int id, int mask) {
+        int h = id * 0x9E3779B9; // Fibonacci hashing spreads sequential IDs
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Moves every entry into new tables of the given capacity, which are
+     * only published once filled.
+     */
+    private void rehash(int capacity) {
+        int[] newKeys = new int[capacity];
+        int[] newSlots = new int[capacity];
+        Arrays.fill(newSlots, EMPTY);
+        int newMask = capacity - 1;
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != EMPTY) {
+                int j = bucket(keys[i], newMask);
+                while (newSlots[j] != EMPTY) {
+                    j = (j + 1) & newMask;
+                }
+                newKeys[j] = keys[i];
+                newSlots[j] = slots[i];
+            }
+        }
+        publish(newKeys, newSlots);
+    }
+
+    private void allocate(int capacity) {
+        int[] newSlots = new int[capacity];
+        Arrays.fill(newSlots, EMPTY);
+        publish(new int[capacity], newSlots);
+    }
+
+    private void publish(int[] newKeys, int[] newSlots) {
+        keys = newKeys;
+        slots = newSlots;
+        mask = newSlots.length - 1;
+        resizeAt = (int) (newSlots.length * 0.75f);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / 0.75);
+        long capacity = MIN_CAPACITY;
+        while (capacity < needed) {
+            capacity <<= 1;
+        }
+        if (capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Index capacity exceeded: " + expectedSize);
+        }
+        return (int) capacity;
+    }
+}
@@ -0,0 +1,294 @@
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An ad-hoc query over an Inventory: predicates on ID, type, name, price,
+ * quantity, warranty and expiry, plus sort order, limit and the fields to
+ * return. Built by chaining, e.g.
+ *
+ *   new ProductQuery().type("Groceries").quantityBetween(0, 10).sortBy(Field.EXPIRY, false).limit(20)
+ *
+ * Calling a range method again narrows the range, so several conditions on
+ * one field all apply. Run it with Inventory.query, or test single rows with
+ * Inventory.matchesAt; parse() reads the text form used by the filter bar
+ * and the command line. Not thread-safe; do not change a query while it runs.
+ */
+public class ProductQuery {
+
+    /** Product fields that can be returned and sorted by. */
+    public enum Field {
+        ID("ID"),
+        TYPE("Type"),
+        NAME("Name"),
+        PRICE("Price"),
+        QUANTITY("Quantity"),
+        /** Stock value: price * quantity. */
+        VALUE("Value"),
+        /** Warranty months; null for products that are not Electronics. */
+        WARRANTY("Warranty"),
+        /** Expiration date as a LocalDate; null if there is no valid one. */
+        EXPIRY("Expiry");
+
+        private final String label;
+
+        Field(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final Field[] ALL_FIELDS = Field.values();
+
+    // Read by Inventory and QueryPlanner while the query runs
+    boolean empty; // contradicting conditions, e.g. two different IDs
+    boolean hasId;
+    int id;
+    String type; // null for any type
+    byte typeTag; // ProductStore tag of type
+    String nameText; // case-insensitive substring, null for any name
+    double minPrice = Double.NEGATIVE_INFINITY;
+    double maxPrice = Double.POSITIVE_INFINITY;
+    int minQuantity = Integer.MIN_VALUE;
+    int maxQuantity = Integer.MAX_VALUE;
+    boolean hasWarranty;
+    int minWarranty = Integer.MIN_VALUE + 1; // above Electronics.NO_WARRANTY
+    int maxWarranty = Integer.MAX_VALUE;
+    boolean hasExpiry;
+    int minExpiryDay = Integer.MIN_VALUE + 1; // above Groceries.NO_EXPIRY
+    int maxExpiryDay = Integer.MAX_VALUE - 1;
+    Field sortField; // null for no particular order
+    boolean descending;
+    int limit = Integer.MAX_VALUE;
+    Field[] fields = ALL_FIELDS;
+
+    /**
+     * Parses the text form of a query (see QueryParser).
+     * @throws IllegalArgumentException if the text is not a valid query.
+     */
+    public static ProductQuery parse(String text) {
+        return QueryParser.parse(text);
+    }
+
+    /**
+     * Parses a query already split into terms, e.g. command-line arguments,
+     * so terms may contain spaces without quotes.
+     * @throws IllegalArgumentException if the terms are not a valid query.
+     */
+    public static ProductQuery parse(List<String> terms) {
+        return QueryParser.parseTerms(terms);
+    }
+
+    /**
+     * Keeps only the product with the given ID.
+     */
+    public ProductQuery id(int id) {
+        if (hasId && this.id != id) {
+            empty = true;
+        }
+        hasId = true;
+        this.id = id;
+        return this;
+    }
+
+    /**
+     * Keeps only products of a type ("Electronics" or "Groceries", any case).
+     * @throws IllegalArgumentException for other types.
+     */
+    public ProductQuery type(String type) {
+        String normalized;
+        if (type.equalsIgnoreCase("Electronics")) {
+            normalized = "Electronics";
+            typeTag = ProductStore.ELECTRONICS;
+        } else if (type.equalsIgnoreCase("Groceries")) {
+            normalized = "Groceries";
+            typeTag = ProductStore.GROCERIES;
+        } else {
+            throw new IllegalArgumentException("Unknown product type: " + type);
+        }
+        if (this.type != null && !this.type.equals(normalized)) {
+            empty = true;
+        }
+        this.type = normalized;
+        return this;
+    }
+
+    /**
+     * Keeps products whose name contains the text, ignoring case.
+     * Only one name condition applies; calling this again replaces it.
+     */
+    public ProductQuery nameContains(String text) {
+        nameText = text == null || text.isEmpty() ? null : text;
+        return this;
+    }
+
+    /**
+     * Keeps products priced from min to max, both inclusive.
+     */
+    public ProductQuery priceBetween(double min, double max) {
+        minPrice = Math.max(minPrice, min);
+        maxPrice = Math.min(maxPrice, max);
+        return this;
+    }
+
+    /**
+     * Keeps products with a quantity from min to max, both inclusive.
+     */
+    public ProductQuery quantityBetween(int min, int max) {
+        minQuantity = Math.max(minQuantity, min);
+        maxQuantity = Math.min(maxQuantity, max);
+        return this;
+    }
+
+    /**
+     * Keeps Electronics with a warranty from min to max months, both inclusive.
+     */
+    public ProductQuery warrantyBetween(int min, int max) {
+        hasWarranty = true;
+        minWarranty = Math.max(minWarranty, min);
+        maxWarranty = Math.min(maxWarranty, max);
+        return this;
+    }
+
+    /**
+     * Keeps Groceries expiring from one day to another, both inclusive.
+     * Products without a valid YYYY-MM-DD date never match.
+     * @param from First day, or null for no lower bound.
+     * @param to Last day, or null for no upper bound.
+     */
+    public ProductQuery expiringBetween(LocalDate from, LocalDate to) {
+        hasExpiry = true;
+        if (from != null) {
+            minExpiryDay = Math.max(minExpiryDay, Inventory.clampEpochDay(from));
+        }
+        if (to != null) {
+            maxExpiryDay = Math.min(maxExpiryDay, Inventory.clampEpochDay(to));
+        }
+        return this;
+    }
+
+    /**
+     * Orders the results by a field. Ties are ordered by ID in the same direction.
+     */
+    public ProductQuery sortBy(Field field, boolean descending) {
+        this.sortField = field;
+        this.descending = descending;
+        return this;
+    }
+
+    /**
+     * Returns at most n products.
+     */
+    public ProductQuery limit(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Limit must not be negative: " + n);
+        }
+        limit = n;
+        return this;
+    }
+
+    /**
+     * Sets the fields returned for each product, in order (all fields by default).
+     */
+    public ProductQuery select(Field... fields) {
+        if (fields.length == 0) {
+            throw new IllegalArgumentException("Select at least one field");
+        }
+        this.fields = fields.clone();
+        return this;
+    }
+
+    public List<Field> getFields() {
+        return Arrays.asList(fields.clone());
+    }
+
+    /**
+     * Returns true if nothing can match, so the query need not look at any product.
+     */
+    boolean isEmpty() {
+        return empty || limit == 0
+                || minPrice > maxPrice || minQuantity > maxQuantity
+                || minWarranty > maxWarranty || minExpiryDay > maxExpiryDay
+                || (hasWarranty && (hasExpiry || "Groceries".equals(type)))
+                || (hasExpiry && "Electronics".equals(type));
+    }
+
+    /**
+     * Tests the values stored in a slot against every condition, cheapest
+     * first; only the name test reads a string. The caller holds the
+     * inventory's lock.
+     */
+    boolean matches(ProductStore store, int slot) {
+        if (hasId && store.idAt(slot) != id) {
+            return false;
+        }
+        int quantity = store.quantityAt(slot);
+        if (quantity < minQuantity || quantity > maxQuantity) {
+            return false;
+        }
+        double price = store.priceAt(slot);
+        if (price < minPrice || price > maxPrice) {
+            return false;
+        }
+        if (hasExpiry) {
+            // NO_EXPIRY (other types, invalid dates) is below minExpiryDay
+            int day = store.expiryDayAt(slot);
+            if (day < minExpiryDay || day > maxExpiryDay) {
+                return false;
+            }
+        }
+        if (hasWarranty) {
+            // Likewise NO_WARRANTY is below minWarranty
+            int warranty = store.warrantyAt(slot);
+            if (warranty < minWarranty || warranty > maxWarranty) {
+                return false;
+            }
+        }
+        if (type != null && store.typeTagAt(slot) != typeTag) {
+            return false;
+        }
+        return nameText == null || containsIgnoreCase(store.nameAt(slot), nameText);
+    }
+
+    private static boolean containsIgnoreCase(String text, String part) {
+        if (text == null) {
+            return false;
+        }
+        for (int i = 0, last = text.length() - part.length(); i <= last; i++) {
+            if (text.regionMatches(true, i, part, 0, part.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Describes the conditions, e.g. for status messages.
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        if (hasId) text.append(" id=").append(id);
+        if (type != null) text.append(" type=").append(type);
+        if (nameText != null) text.append(" name~").append(nameText);
+        if (minPrice != Double.NEGATIVE_INFINITY) text.append(" price>=").append(minPrice);
+        if (maxPrice != Double.POSITIVE_INFINITY) text.append(" price<=").append(maxPrice);
+        if (minQuantity != Integer.MIN_VALUE) text.append(" qty>=").append(minQuantity);
+        if (maxQuantity != Integer.MAX_VALUE) text.append(" qty<=").append(maxQuantity);
+        if (hasWarranty) text.append(" warranty>=").append(Math.max(minWarranty, 0));
+        if (hasWarranty && maxWarranty != Integer.MAX_VALUE) text.append(" warranty<=").append(maxWarranty);
+        if (hasExpiry) {
+            text.append(" expires=").append(minExpiryDay == Integer.MIN_VALUE + 1 ? "" : LocalDate.ofEpochDay(minExpiryDay))
+                    .append("..").append(maxExpiryDay == Integer.MAX_VALUE - 1 ? "" : LocalDate.ofEpochDay(maxExpiryDay));
+        }
+        if (sortField != null) {
+            text.append(" sort=").append(descending ? "-" : "").append(sortField.name().toLowerCase(Locale.ROOT));
+        }
+        if (limit != Integer.MAX_VALUE) text.append(" limit=").append(limit);
+        return text.length() == 0 ? "(all products)" : text.substring(1);
+    }
+}
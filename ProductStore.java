@@ -0,0 +1,157 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Dense, slot-addressed product storage behind Inventory.
+ * Slots run from 0 to size() - 1 and match inventory rows.
+ *
+ * The primitive accessors return the values a slot was last stored with by
+ * add() or set(), even if the Product object was changed afterwards; Inventory
+ * relies on that to take old values out of its running aggregates.
+ * Implementations are not thread-safe.
+ */
+public interface ProductStore {
+    /** Type tag for Electronics. */
+    byte ELECTRONICS = 1;
+    /** Type tag for Groceries. */
+    byte GROCERIES = 2;
+
+    int size();
+
+    /**
+     * Returns the product in a slot. Object storage returns the stored
+     * instance; columnar storage builds a detached view, so changes to it
+     * only take effect through set().
+     */
+    Product get(int slot);
+
+    /**
+     * Appends a product.
+     * @return The slot it was stored in.
+     */
+    int add(Product product);
+
+    /**
+     * Stores the current state of a product in an existing slot.
+     */
+    void set(int slot, Product product);
+
+    /**
+     * Removes a slot by moving the last slot into it.
+     */
+    void swapRemove(int slot);
+
+    void clear();
+
+    /**
+     * Returns a point-in-time copy of the store that later changes do not
+     * affect. It shares storage with this store instead of copying it (this
+     * store copies what it writes afterwards) and must not be modified.
+     * Like a write, it must not run concurrently with other calls on this store.
+     */
+    ProductStore snapshot();
+
+    void ensureCapacity(int capacity);
+
+    int idAt(int slot);
+
+    double priceAt(int slot);
+
+    int quantityAt(int slot);
+
+    String nameAt(int slot);
+
+    /**
+     * Returns the product type name, as Product.getType() would.
+     */
+    String typeAt(int slot);
+
+    /**
+     * Returns the type tag of a slot (ELECTRONICS or GROCERIES), or 0 for
+     * other product types, so type filters compare bytes instead of strings.
+     */
+    byte typeTagAt(int slot);
+
+    /**
+     * Returns the expiry epoch day of a Groceries slot (see
+     * Groceries.getExpiryEpochDay), or Groceries.NO_EXPIRY for other products.
+     */
+    int expiryDayAt(int slot);
+
+    /**
+     * Returns the warranty months of an Electronics slot, or
+     * Electronics.NO_WARRANTY for other products.
+     */
+    int warrantyAt(int slot);
+
+    /**
+     * Returns the expiration date text of a Groceries slot (which may be
+     * null), or null for other products.
+     */
+    String expiryTextAt(int slot);
+
+    /**
+     * Appends the name of a slot, as nameAt would return it.
+     */
+    default void appendNameAt(int slot, StringBuilder out) {
+        out.append(nameAt(slot));
+    }
+
+    /**
+     * Returns the length of a slot's name in UTF-8 bytes, counting a null
+     * name as "null", as appendNameAt writes it.
+     */
+    default int nameUtf8LengthAt(int slot) {
+        return BinarySnapshot.utf8Length(String.valueOf(nameAt(slot)));
+    }
+
+    /**
+     * Puts a slot's name as UTF-8 into a buffer with room for
+     * nameUtf8LengthAt(slot) bytes, if the store keeps the name encoded.
+     * @return Whether it did; if not, callers encode nameAt(slot) themselves.
+     */
+    default boolean putNameUtf8At(int slot, ByteBuffer buffer) {
+        return false;
+    }
+
+    /**
+     * Returns the specific detail text, as Product.getSpecificDetail() would.
+     * Electronics and Groceries texts are shared rather than built per call.
+     */
+    default String detailAt(int slot) {
+        switch (typeTagAt(slot)) {
+            case ELECTRONICS: return DetailText.warranty(warrantyAt(slot));
+            case GROCERIES: return DetailText.expiry(expiryTextAt(slot));
+            default: return get(slot).getSpecificDetail();
+        }
+    }
+
+    /**
+     * Appends the CSV form of a slot, as Product.appendCsv would, from the
+     * stored fields rather than a Product.
+     */
+    default void appendCsvAt(int slot, StringBuilder out) {
+        byte tag = typeTagAt(slot);
+        if (tag != ELECTRONICS && tag != GROCERIES) {
+            get(slot).appendCsv(out);
+            return;
+        }
+        out.append(idAt(slot)).append(',').append(typeAt(slot)).append(',');
+        appendNameAt(slot, out);
+        out.append(',').append(priceAt(slot)).append(',').append(quantityAt(slot)).append(',');
+        if (tag == ELECTRONICS) {
+            out.append(warrantyAt(slot));
+        } else {
+            out.append(expiryTextAt(slot));
+        }
+    }
+
+    /**
+     * Maps a product to its type tag.
+     * @throws IllegalArgumentException for product types without a tag.
+     */
+    static byte typeTag(Product product) {
+        if (product instanceof Electronics) return ELECTRONICS;
+        if (product instanceof Groceries) return GROCERIES;
+        throw new IllegalArgumentException("Unsupported product type: " + product.getType());
+    }
+}
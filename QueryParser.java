@@ -0,0 +1,275 @@
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parses the text form of a ProductQuery, as typed into the filter bar or
+ * passed to InventoryCli query. Terms are separated by spaces and all apply:
+ *
+ *   id=42                      type=groceries             name~"olive oil"
+ *   price<9.99  price=5..20    qty<=10  quantity>100      warranty>=24
+ *   expires<=2026-03-01        expires<7d (days from today)   expired
+ *   sort=-qty (descending)     limit=20                   select=id,name,price
+ *
+ * Comparisons are =, <, <=, > and >=; "=a..b" is an inclusive range. Any
+ * other words are matched against the name together, like name~"...".
+ */
+final class QueryParser {
+
+    private QueryParser() {
+    }
+
+    static ProductQuery parse(String text) {
+        return parseTerms(tokenize(text));
+    }
+
+    /**
+     * Parses terms that were already split, e.g. command-line arguments.
+     */
+    static ProductQuery parseTerms(List<String> terms) {
+        ProductQuery query = new ProductQuery();
+        StringBuilder nameWords = new StringBuilder();
+        for (String term : terms) {
+            int opStart = indexOfOperator(term);
+            if (opStart <= 0) {
+                if (term.equalsIgnoreCase("expired")) {
+                    query.expiringBetween(null, LocalDate.now().minusDays(1));
+                } else {
+                    nameWords.append(nameWords.length() == 0 ? "" : " ").append(unquote(term));
+                }
+                continue;
+            }
+            String key = term.substring(0, opStart).toLowerCase(Locale.ROOT);
+            int opEnd = opStart + 1;
+            if (opEnd < term.length() && term.charAt(opEnd) == '=' && term.charAt(opStart) != '=') {
+                opEnd++;
+            }
+            String op = term.substring(opStart, opEnd);
+            String value = unquote(term.substring(opEnd));
+            if (value.isEmpty()) {
+                throw new IllegalArgumentException("Missing value in: " + term);
+            }
+            apply(query, key, op, value, term);
+        }
+        if (nameWords.length() > 0) {
+            if (query.nameText != null) {
+                throw new IllegalArgumentException("Use either words or name~, not both");
+            }
+            query.nameContains(nameWords.toString());
+        }
+        return query;
+    }
+
+    private static void apply(ProductQuery query, String key, String op, String value, String term) {
+        switch (key) {
+            case "id":
+                requireOp(op, "=", term);
+                query.id(parseInt(value, term));
+                break;
+            case "type":
+                requireOp(op, "=", term);
+                query.type(value);
+                break;
+            case "name":
+                requireOp(op, "~", term);
+                query.nameContains(value);
+                break;
+            case "price": {
+                double[] range = doubleRange(op, value, term);
+                query.priceBetween(range[0], range[1]);
+                break;
+            }
+            case "qty":
+            case "quantity": {
+                int[] range = intRange(op, value, term);
+                query.quantityBetween(range[0], range[1]);
+                break;
+            }
+            case "warranty": {
+                int[] range = intRange(op, value, term);
+                query.warrantyBetween(range[0], range[1]);
+                break;
+            }
+            case "expires":
+            case "expiry": {
+                LocalDate[] range = dateRange(op, value, term);
+                query.expiringBetween(range[0], range[1]);
+                break;
+            }
+            case "sort": {
+                requireOp(op, "=", term);
+                boolean descending = value.startsWith("-");
+                query.sortBy(parseField(descending ? value.substring(1) : value), descending);
+                break;
+            }
+            case "limit":
+                requireOp(op, "=", term);
+                query.limit(parseInt(value, term));
+                break;
+            case "select": {
+                requireOp(op, "=", term);
+                List<ProductQuery.Field> fields = new ArrayList<>();
+                for (String name : value.split(",")) {
+                    fields.add(parseField(name));
+                }
+                query.select(fields.toArray(new ProductQuery.Field[0]));
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown field: " + key);
+        }
+    }
+
+    /**
+     * Splits on spaces outside double quotes.
+     */
+    private static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        StringBuilder term = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (term.length() > 0) {
+                    terms.add(term.toString());
+                    term.setLength(0);
+                }
+                continue;
+            }
+            term.append(c);
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Missing closing quote");
+        }
+        if (term.length() > 0) {
+            terms.add(term.toString());
+        }
+        return terms;
+    }
+
+    private static int indexOfOperator(String term) {
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            if (c == '"') return -1;
+            if (c == '=' || c == '<' || c == '>' || c == '~') return i;
+        }
+        return -1;
+    }
+
+    private static String unquote(String value) {
+        return value.replace("\"", "");
+    }
+
+    private static void requireOp(String op, String expected, String term) {
+        if (!op.equals(expected)) {
+            throw new IllegalArgumentException("Expected '" + expected + "' in: " + term);
+        }
+    }
+
+    private static ProductQuery.Field parseField(String name) {
+        String upper = name.trim().toUpperCase(Locale.ROOT);
+        if (upper.equals("QTY")) return ProductQuery.Field.QUANTITY;
+        if (upper.equals("EXPIRES")) return ProductQuery.Field.EXPIRY;
+        try {
+            return ProductQuery.Field.valueOf(upper);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown field: " + name);
+        }
+    }
+
+    private static int[] intRange(String op, String value, String term) {
+        int dots = value.indexOf("..");
+        if (dots >= 0) {
+            requireOp(op, "=", term);
+            return new int[] {parseInt(value.substring(0, dots), term), parseInt(value.substring(dots + 2), term)};
+        }
+        int n = parseInt(value, term);
+        switch (op) {
+            case "=": return new int[] {n, n};
+            case "<": return n == Integer.MIN_VALUE ? new int[] {1, 0} : new int[] {Integer.MIN_VALUE, n - 1};
+            case "<=": return new int[] {Integer.MIN_VALUE, n};
+            case ">": return n == Integer.MAX_VALUE ? new int[] {1, 0} : new int[] {n + 1, Integer.MAX_VALUE};
+            case ">=": return new int[] {n, Integer.MAX_VALUE};
+            default: throw new IllegalArgumentException("Unsupported comparison in: " + term);
+        }
+    }
+
+    private static double[] doubleRange(String op, String value, String term) {
+        int dots = value.indexOf("..");
+        if (dots >= 0) {
+            requireOp(op, "=", term);
+            return new double[] {parseDouble(value.substring(0, dots), term), parseDouble(value.substring(dots + 2), term)};
+        }
+        double d = parseDouble(value, term);
+        switch (op) {
+            case "=": return new double[] {d, d};
+            case "<": return new double[] {Double.NEGATIVE_INFINITY, Math.nextDown(d)};
+            case "<=": return new double[] {Double.NEGATIVE_INFINITY, d};
+            case ">": return new double[] {Math.nextUp(d), Double.POSITIVE_INFINITY};
+            case ">=": return new double[] {d, Double.POSITIVE_INFINITY};
+            default: throw new IllegalArgumentException("Unsupported comparison in: " + term);
+        }
+    }
+
+    /**
+     * Parses a date range; null bounds are open.
+     */
+    private static LocalDate[] dateRange(String op, String value, String term) {
+        int dots = value.indexOf("..");
+        if (dots >= 0) {
+            requireOp(op, "=", term);
+            return new LocalDate[] {parseDate(value.substring(0, dots), term), parseDate(value.substring(dots + 2), term)};
+        }
+        LocalDate date = parseDate(value, term);
+        switch (op) {
+            case "=": return new LocalDate[] {date, date};
+            case "<": return new LocalDate[] {null, date.minusDays(1)};
+            case "<=": return new LocalDate[] {null, date};
+            case ">": return new LocalDate[] {date.plusDays(1), null};
+            case ">=": return new LocalDate[] {date, null};
+            default: throw new IllegalArgumentException("Unsupported comparison in: " + term);
+        }
+    }
+
+    private static int parseInt(String value, String term) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in: " + term);
+        }
+    }
+
+    private static double parseDouble(String value, String term) {
+        try {
+            double d = Double.parseDouble(value.trim());
+            if (Double.isNaN(d)) {
+                throw new NumberFormatException();
+            }
+            return d;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in: " + term);
+        }
+    }
+
+    /**
+     * Parses YYYY-MM-DD, "today", or a number of days from today such as 7d or -3d.
+     */
+    private static LocalDate parseDate(String value, String term) {
+        String text = value.trim().toLowerCase(Locale.ROOT);
+        if (text.equals("today")) {
+            return LocalDate.now();
+        }
+        if (text.endsWith("d")) {
+            return LocalDate.now().plusDays(parseInt(text.substring(0, text.length() - 1).replace("+", ""), term));
+        }
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date in: " + term);
+        }
+    }
+}
@@ -0,0 +1,464 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Plans and runs one ProductQuery against the structures of an Inventory,
+ * whose read lock the caller holds.
+ *
+ * The planner estimates how many products each usable access path visits:
+ * a lookup in the ID index, the IDs of the queried category, a range of the
+ * quantity or expiry index, or a scan of every slot. Index estimates are rank
+ * queries, so planning never visits products. An index whose order matches
+ * the requested sort needs no sort and can stop at the limit; the cheapest
+ * path wins. Products are then tested on the stored primitive values (see
+ * ProductQuery.matches) and only the matching slot numbers are kept; Product
+ * objects and result rows are built for the final rows only.
+ *
+ * Large full scans are split into ranges of slots that are tested in
+ * parallel on the common ForkJoinPool, the calling thread included, and
+ * merged in slot order. The store is only read meanwhile: the caller's read
+ * lock keeps writers out until the workers are done.
+ */
+final class QueryPlanner {
+
+    private enum Access {
+        NONE("no products (conditions exclude each other)"),
+        ID("ID index"),
+        EXPIRY("expiry index"),
+        QUANTITY("quantity index"),
+        CATEGORY("category index"),
+        SCAN("full scan");
+
+        final String label;
+
+        Access(String label) {
+            this.label = label;
+        }
+    }
+
+    // Rough relative costs per product, measured on a million products: a
+    // scan reads slots in order, an index walk adds an ID lookup and jumps
+    // between slots, and sorting adds comparisons.
+    private static final int INDEX_VISIT_COST = 8;
+    private static final int SORT_COST = 4;
+    // An ordered walk with a limit is assumed to find a match at least every this many products
+    private static final int ORDERED_WALK_FACTOR = 4;
+
+    /** Full scans of at least this many products run in parallel. */
+    static final int PARALLEL_SCAN_THRESHOLD = 1 << 16;
+    private static final int SCAN_RANGE_SIZE = 1 << 14; // products per parallel task
+
+    private final ProductStore store;
+    private final ProductIndex index;
+    private final SortedLongSet stockRanking;
+    private final SortedLongSet expiryIndex;
+    private final SortedLongSet categoryIds; // IDs of the queried type, null if any type
+
+    private ProductQuery query;
+    private int[] matches = new int[16];
+    private int matchCount;
+    private boolean stopAtLimit;
+    private boolean parallel; // the scan ran in parallel
+
+    QueryPlanner(ProductStore store, ProductIndex index, SortedLongSet stockRanking,
+                 SortedLongSet expiryIndex, SortedLongSet categoryIds) {
+        this.store = store;
+        this.index = index;
+        this.stockRanking = stockRanking;
+        this.expiryIndex = expiryIndex;
+        this.categoryIds = categoryIds;
+    }
+
+    QueryResult execute(ProductQuery query) {
+        this.query = query;
+        matchCount = 0;
+        parallel = false;
+
+        // Choose the access path
+        Access access = Access.NONE;
+        long estimate = 0;
+        long bestCost = Long.MAX_VALUE;
+        if (!query.isEmpty()) {
+            long[] estimates = new long[Access.values().length];
+            long maxMatches = Long.MAX_VALUE; // every path visits all matches
+            for (Access candidate : Access.values()) {
+                estimates[candidate.ordinal()] = estimate(candidate);
+                if (estimates[candidate.ordinal()] >= 0) {
+                    maxMatches = Math.min(maxMatches, estimates[candidate.ordinal()]);
+                }
+            }
+            for (Access candidate : Access.values()) {
+                long rows = estimates[candidate.ordinal()];
+                if (rows < 0) {
+                    continue; // not usable for this query
+                }
+                long cost = cost(candidate, rows, maxMatches);
+                if (cost < bestCost) {
+                    access = candidate;
+                    estimate = rows;
+                    bestCost = cost;
+                }
+            }
+        }
+        boolean ordered = isOrdered(access);
+        stopAtLimit = ordered || query.sortField == null;
+
+        run(access, query.descending);
+        int[] slots = matches;
+        if (query.sortField != null && !ordered) {
+            slots = sortedMatches();
+        }
+
+        int count = Math.min(matchCount, query.limit);
+        ProductQuery.Field[] fields = query.fields.clone();
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Object[] row = new Object[fields.length];
+            for (int f = 0; f < fields.length; f++) {
+                row[f] = value(slots[i], fields[f]);
+            }
+            rows.add(row);
+        }
+        return new QueryResult(Arrays.asList(fields), rows, describe(access, estimate, ordered));
+    }
+
+    /**
+     * Estimates the products an access path visits, or returns -1 if it
+     * cannot answer the query.
+     */
+    private long estimate(Access access) {
+        switch (access) {
+            case ID:
+                return query.hasId ? (index.contains(query.id) ? 1 : 0) : -1;
+            case EXPIRY:
+                return query.hasExpiry ? countRange(expiryIndex, query.minExpiryDay, query.maxExpiryDay) : -1;
+            case QUANTITY:
+                boolean bounded = query.minQuantity != Integer.MIN_VALUE || query.maxQuantity != Integer.MAX_VALUE;
+                return bounded || query.sortField == ProductQuery.Field.QUANTITY
+                        ? countRange(stockRanking, query.minQuantity, query.maxQuantity) : -1;
+            case CATEGORY:
+                return categoryIds != null ? categoryIds.size() : -1;
+            case SCAN:
+                return store.size();
+            default:
+                return -1;
+        }
+    }
+
+    private long cost(Access access, long rows, long maxMatches) {
+        long visited = rows;
+        if (isOrdered(access) && query.limit < rows) {
+            visited = Math.min(rows, (long) query.limit * ORDERED_WALK_FACTOR);
+        }
+        long cost = access == Access.SCAN ? visited : visited * INDEX_VISIT_COST;
+        if (query.sortField != null && !isOrdered(access)) {
+            cost += maxMatches * SORT_COST;
+        }
+        return cost;
+    }
+
+    /**
+     * Returns true if the access path visits products in the requested sort order.
+     */
+    private boolean isOrdered(Access access) {
+        ProductQuery.Field sort = query.sortField;
+        switch (access) {
+            case ID:
+            case NONE:
+                return true; // at most one product
+            case EXPIRY:
+                return sort == ProductQuery.Field.EXPIRY;
+            case QUANTITY:
+                return sort == ProductQuery.Field.QUANTITY;
+            case CATEGORY:
+                return sort == ProductQuery.Field.ID;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Visits the products of an access path in its order (reversed if
+     * descending), collecting the matching slots.
+     */
+    private void run(Access access, boolean descending) {
+        switch (access) {
+            case ID: {
+                int slot = index.get(query.id);
+                if (slot >= 0) {
+                    visit(slot);
+                }
+                break;
+            }
+            case EXPIRY:
+                walkRange(expiryIndex, query.minExpiryDay, query.maxExpiryDay, descending);
+                break;
+            case QUANTITY:
+                walkRange(stockRanking, query.minQuantity, query.maxQuantity, descending);
+                break;
+            case CATEGORY:
+                if (descending) {
+                    categoryIds.forEachDescending(id -> visit(index.get((int) id)));
+                } else {
+                    categoryIds.forEachAscending(id -> visit(index.get((int) id)));
+                }
+                break;
+            case SCAN:
+                if (store.size() >= PARALLEL_SCAN_THRESHOLD) {
+                    scanInParallel(store.size());
+                    break;
+                }
+                for (int slot = 0, n = store.size(); slot < n; slot++) {
+                    if (!visit(slot)) break;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Tests one slot and keeps it if it matches.
+     * @return false once enough products were found.
+     */
+    private boolean visit(int slot) {
+        if (!query.matches(store, slot)) {
+            return true;
+        }
+        if (matchCount == matches.length) {
+            matches = Arrays.copyOf(matches, matchCount * 2);
+        }
+        matches[matchCount++] = slot;
+        return !(stopAtLimit && matchCount >= query.limit);
+    }
+
+    /**
+     * Scans every slot in parallel ranges and collects the matches in slot
+     * order. With a limit, each range stops at the limit on its own, so the
+     * first ranges yield the same matches as a sequential scan.
+     */
+    private void scanInParallel(int size) {
+        parallel = true;
+        int[][] ranges = new int[(size + SCAN_RANGE_SIZE - 1) / SCAN_RANGE_SIZE][];
+        new ScanTask(ranges, 0, ranges.length, size).invoke();
+        for (int[] found : ranges) {
+            for (int slot : found) {
+                if (matchCount == matches.length) {
+                    matches = Arrays.copyOf(matches, matchCount * 2);
+                }
+                matches[matchCount++] = slot;
+                if (stopAtLimit && matchCount >= query.limit) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills ranges[first, last) with the matching slots of each range,
+     * splitting in halves down to single ranges.
+     */
+    private final class ScanTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[][] ranges;
+        private final int first;
+        private final int last;
+        private final int size;
+
+        ScanTask(int[][] ranges, int first, int last, int size) {
+            this.ranges = ranges;
+            this.first = first;
+            this.last = last;
+            this.size = size;
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first == 1) {
+                ranges[first] = scanRange(first * SCAN_RANGE_SIZE, Math.min(size, (first + 1) * SCAN_RANGE_SIZE));
+                return;
+            }
+            int mid = (first + last) >>> 1;
+            invokeAll(new ScanTask(ranges, first, mid, size), new ScanTask(ranges, mid, last, size));
+        }
+    }
+
+    private int[] scanRange(int from, int to) {
+        int[] found = new int[16];
+        int count = 0;
+        for (int slot = from; slot < to; slot++) {
+            if (query.matches(store, slot)) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = slot;
+                if (stopAtLimit && count >= query.limit) {
+                    break;
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    // The quantity and expiry indexes hold (value, id) keys, see Inventory.stockKey
+
+    private static long countRange(SortedLongSet keys, int min, int max) {
+        long below = keys.countLessThan(Inventory.stockKey(min, 0));
+        long upTo = max == Integer.MAX_VALUE ? keys.size() : keys.countLessThan(Inventory.stockKey(max + 1, 0));
+        return upTo - below;
+    }
+
+    private void walkRange(SortedLongSet keys, int min, int max, boolean descending) {
+        long fromKey = Inventory.stockKey(min, 0);
+        if (descending) {
+            if (max == Integer.MAX_VALUE) {
+                keys.forEachDescending(key -> key >= fromKey && visit(index.get(Inventory.idOfStockKey(key))));
+            } else {
+                keys.forEachBefore(Inventory.stockKey(max + 1, 0),
+                        key -> key >= fromKey && visit(index.get(Inventory.idOfStockKey(key))));
+            }
+        } else {
+            long toKey = max == Integer.MAX_VALUE ? Long.MAX_VALUE : Inventory.stockKey(max + 1, 0);
+            keys.forEachFrom(fromKey,
+                    key -> (key < toKey || max == Integer.MAX_VALUE) && visit(index.get(Inventory.idOfStockKey(key))));
+        }
+    }
+
+    /**
+     * Sorts the matching slots by the sort field, then by ID. Names and types
+     * are read once per match rather than once per comparison.
+     */
+    private int[] sortedMatches() {
+        int n = matchCount;
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        int[] slots = matches;
+        IntBinaryOperator byField;
+        switch (query.sortField) {
+            case NAME:
+            case TYPE: {
+                String[] keys = new String[n];
+                for (int i = 0; i < n; i++) {
+                    keys[i] = query.sortField == ProductQuery.Field.NAME ? store.nameAt(slots[i]) : store.typeAt(slots[i]);
+                }
+                byField = (a, b) -> compareNullsFirst(keys[a], keys[b]);
+                break;
+            }
+            case PRICE:
+                byField = (a, b) -> Double.compare(store.priceAt(slots[a]), store.priceAt(slots[b]));
+                break;
+            case QUANTITY:
+                byField = (a, b) -> Integer.compare(store.quantityAt(slots[a]), store.quantityAt(slots[b]));
+                break;
+            case VALUE:
+                byField = (a, b) -> Double.compare(store.priceAt(slots[a]) * store.quantityAt(slots[a]),
+                        store.priceAt(slots[b]) * store.quantityAt(slots[b]));
+                break;
+            case WARRANTY:
+                byField = (a, b) -> Integer.compare(store.warrantyAt(slots[a]), store.warrantyAt(slots[b]));
+                break;
+            case EXPIRY:
+                byField = (a, b) -> Integer.compare(store.expiryDayAt(slots[a]), store.expiryDayAt(slots[b]));
+                break;
+            default:
+                byField = (a, b) -> 0;
+                break;
+        }
+        int sign = query.descending ? -1 : 1;
+        IntBinaryOperator comparator = (a, b) -> {
+            int c = byField.applyAsInt(a, b);
+            if (c == 0) {
+                c = Integer.compare(store.idAt(slots[a]), store.idAt(slots[b]));
+            }
+            return sign * c;
+        };
+        mergeSort(order, new int[n], 0, n, comparator);
+
+        int[] sorted = new int[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = slots[order[i]];
+        }
+        return sorted;
+    }
+
+    private static int compareNullsFirst(String a, String b) {
+        if (a == null) return b == null ? 0 : -1;
+        if (b == null) return 1;
+        return a.compareTo(b);
+    }
+
+    /**
+     * Sorts a[from, to) with a primitive comparator; no boxing.
+     */
+    private static void mergeSort(int[] a, int[] scratch, int from, int to, IntBinaryOperator comparator) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                int value = a[i];
+                int j = i - 1;
+                while (j >= from && comparator.applyAsInt(a[j], value) > 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = value;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(a, scratch, from, mid, comparator);
+        mergeSort(a, scratch, mid, to, comparator);
+        if (comparator.applyAsInt(a[mid - 1], a[mid]) <= 0) {
+            return; // already in order
+        }
+        System.arraycopy(a, from, scratch, from, to - from);
+        int i = from, j = mid, k = from;
+        while (i < mid && j < to) {
+            a[k++] = comparator.applyAsInt(scratch[j], scratch[i]) < 0 ? scratch[j++] : scratch[i++];
+        }
+        while (i < mid) a[k++] = scratch[i++];
+        while (j < to) a[k++] = scratch[j++];
+    }
+
+    private Object value(int slot, ProductQuery.Field field) {
+        switch (field) {
+            case ID: return store.idAt(slot);
+            case TYPE: return store.typeAt(slot);
+            case NAME: return store.nameAt(slot);
+            case PRICE: return store.priceAt(slot);
+            case QUANTITY: return store.quantityAt(slot);
+            case VALUE: return store.priceAt(slot) * store.quantityAt(slot);
+            case WARRANTY: {
+                int warranty = store.warrantyAt(slot);
+                return warranty == Electronics.NO_WARRANTY ? null : warranty;
+            }
+            case EXPIRY: {
+                int day = store.expiryDayAt(slot);
+                return day == Groceries.NO_EXPIRY ? null : LocalDate.ofEpochDay(day);
+            }
+            default: throw new IllegalArgumentException("Unknown field: " + field);
+        }
+    }
+
+    private String describe(Access access, long estimate, boolean ordered) {
+        StringBuilder plan = new StringBuilder(access.label);
+        if (parallel) {
+            plan.append(" in parallel");
+        }
+        if (access != Access.NONE) {
+            plan.append(" (~").append(estimate).append(" of ").append(store.size()).append(" products)");
+        }
+        if (query.sortField != null && access != Access.NONE && access != Access.ID) {
+            plan.append(ordered ? ", in index order" : ", then sorted");
+        }
+        if (query.limit != Integer.MAX_VALUE) {
+            plan.append(", limit ").append(query.limit);
+        }
+        return plan.toString();
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.List;
+
+/**
+ * Result of a ProductQuery: one row per matching product, holding the
+ * selected fields in order, and a description of how the query was run.
+ */
+public final class QueryResult {
+    private final List<ProductQuery.Field> fields;
+    private final List<Object[]> rows;
+    private final String plan;
+
+    QueryResult(List<ProductQuery.Field> fields, List<Object[]> rows, String plan) {
+        this.fields = fields;
+        this.rows = rows;
+        this.plan = plan;
+    }
+
+    /**
+     * Returns the fields of each row, in column order.
+     */
+    public List<ProductQuery.Field> getFields() {
+        return fields;
+    }
+
+    /**
+     * Returns the rows in result order. Values are Integer (ID, quantity,
+     * warranty), Double (price, value), String (type, name) or LocalDate
+     * (expiry); warranty and expiry are null where they do not apply.
+     */
+    public List<Object[]> getRows() {
+        return rows;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * Describes the access path chosen by the planner, e.g.
+     * "quantity index (~120 of 10000 products), in index order".
+     */
+    public String getPlan() {
+        return plan;
+    }
+}
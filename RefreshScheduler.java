@@ -0,0 +1,184 @@
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.swing.SwingUtilities;
+
+/**
+ * Coalesces UI refreshes. Inventory events and refresh requests only mark
+ * regions of the window dirty; at most once per frame the scheduler gathers
+ * the data for every dirty region on its own background thread and posts the
+ * resulting Swing updates to the EDT in one go. A burst of changes, e.g. from
+ * a barcode scanner, therefore costs one refresh per frame however many
+ * changes it contains, and the EDT never runs the aggregation itself.
+ *
+ * The next frame starts only after the previous one was applied, so a busy
+ * EDT slows refreshes down instead of queuing them up.
+ */
+public class RefreshScheduler implements InventoryListener {
+
+    /** Minimum time between two refreshes (one frame at 60 Hz). */
+    static final long FRAME_MILLIS = 16;
+
+    /** The parts of the window that can be refreshed independently. */
+    public enum Region {
+        /** Row events of the product table, for changes made off the EDT. */
+        TABLE,
+        DASHBOARD,
+        CHARTS
+    }
+
+    /**
+     * Something that shows inventory data in one region.
+     * @param <T> The data gathered for one refresh.
+     */
+    public interface View<T> {
+        /**
+         * Gathers the data to show. Runs on the scheduler thread, not the EDT.
+         * @return The data for apply, or null to skip this refresh (e.g. while hidden).
+         */
+        T compute();
+
+        /**
+         * Shows the data. Runs on the EDT.
+         */
+        void apply(T data);
+    }
+
+    private static final Region[] REGIONS = Region.values();
+
+    // Per region: "ui.refresh.<region>.compute" on the scheduler thread, ".apply" on the EDT
+    private static final Metrics.Timer[] COMPUTE_TIMERS = new Metrics.Timer[REGIONS.length];
+    private static final Metrics.Timer[] APPLY_TIMERS = new Metrics.Timer[REGIONS.length];
+    private static final LongAdder FRAMES = Metrics.global().counter("ui.refresh.frames");
+    private static final LongAdder SKIPPED = Metrics.global().counter("ui.refresh.skipped");
+
+    static {
+        for (Region region : REGIONS) {
+            String prefix = "ui.refresh." + region.name().toLowerCase(Locale.ROOT);
+            COMPUTE_TIMERS[region.ordinal()] = Metrics.global().timer(prefix + ".compute");
+            APPLY_TIMERS[region.ordinal()] = Metrics.global().timer(prefix + ".apply");
+        }
+    }
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "inventory-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Copied on write, so the scheduler thread always sees a complete array
+    private volatile View<?>[] views = new View<?>[REGIONS.length];
+    private final AtomicInteger dirty = new AtomicInteger(); // bit per Region ordinal
+    private final AtomicBoolean frameScheduled = new AtomicBoolean();
+    private volatile long lastFrameNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(FRAME_MILLIS);
+
+    /**
+     * Sets the view refreshed for a region, replacing any previous one.
+     */
+    public synchronized void setView(Region region, View<?> view) {
+        View<?>[] updated = views.clone();
+        updated[region.ordinal()] = view;
+        views = updated;
+    }
+
+    /**
+     * Marks regions dirty; they are refreshed with the next frame.
+     * Safe to call from any thread.
+     */
+    public void requestRefresh(Region... regions) {
+        int bits = 0;
+        for (Region region : regions) {
+            bits |= 1 << region.ordinal();
+        }
+        dirty.accumulateAndGet(bits, (current, added) -> current | added);
+        scheduleFrame();
+    }
+
+    private void scheduleFrame() {
+        if (dirty.get() != 0 && frameScheduled.compareAndSet(false, true)) {
+            long wait = lastFrameNanos + TimeUnit.MILLISECONDS.toNanos(FRAME_MILLIS) - System.nanoTime();
+            executor.schedule(this::runFrame, Math.max(0, wait), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Gathers the data of every dirty region on the scheduler thread, then
+     * applies it on the EDT.
+     */
+    private void runFrame() {
+        int regions = dirty.getAndSet(0);
+        FRAMES.increment();
+        View<?>[] views = this.views;
+        Runnable[] updates = new Runnable[REGIONS.length];
+        for (int i = 0; i < REGIONS.length; i++) {
+            if ((regions & (1 << i)) != 0 && views[i] != null) {
+                updates[i] = prepare(views[i], i);
+            }
+        }
+        SwingUtilities.invokeLater(() -> {
+            try {
+                for (Runnable update : updates) {
+                    if (update != null) {
+                        update.run();
+                    }
+                }
+            } finally {
+                lastFrameNanos = System.nanoTime();
+                frameScheduled.set(false);
+                scheduleFrame(); // Regions dirtied while this frame was in flight
+            }
+        });
+    }
+
+    private static <T> Runnable prepare(View<T> view, int region) {
+        T data;
+        try {
+            Metrics.Span span = COMPUTE_TIMERS[region].begin();
+            data = view.compute();
+            span.end(0);
+        } catch (RuntimeException e) {
+            System.err.println("Failed to refresh view: " + e);
+            return null;
+        }
+        if (data == null) {
+            SKIPPED.increment();
+            return null;
+        }
+        return () -> {
+            Metrics.Span span = APPLY_TIMERS[region].begin();
+            view.apply(data);
+            span.end(0);
+        };
+    }
+
+    // --- InventoryListener ---
+    // Every change can move the aggregates; the table follows changes by itself.
+
+    @Override
+    public void productAdded(Product product, int row) {
+        requestRefresh(Region.DASHBOARD, Region.CHARTS);
+    }
+
+    @Override
+    public void productsAdded(int firstRow, int lastRow) {
+        requestRefresh(Region.DASHBOARD, Region.CHARTS);
+    }
+
+    @Override
+    public void productUpdated(Product product, int row) {
+        requestRefresh(Region.DASHBOARD, Region.CHARTS);
+    }
+
+    @Override
+    public void productRemoved(Product product, int row, int lastRow) {
+        requestRefresh(Region.DASHBOARD, Region.CHARTS);
+    }
+
+    @Override
+    public void inventoryChanged() {
+        requestRefresh(Region.DASHBOARD, Region.CHARTS);
+    }
+}
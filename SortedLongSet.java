@@ -0,0 +1,216 @@
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * A sorted set of primitive long keys stored as a list of small sorted blocks.
+ * Inserts and removals binary-search to the right block and shift within it,
+ * so they cost O(log n + B) without boxing; ordered walks from either end or
+ * from a given key cost O(log n + k) for k visited keys. Also answers rank
+ * queries (countLessThan).
+ * Not thread-safe.
+ */
+public class SortedLongSet {
+    private static final int BLOCK_SIZE = 512;
+
+    private long[][] blocks = new long[4][];
+    private int[] blockSizes = new int[4];
+    private int blockCount;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        blocks = new long[4][];
+        blockSizes = new int[4];
+        blockCount = 0;
+        size = 0;
+    }
+
+    public boolean contains(long key) {
+        if (size == 0) return false;
+        int b = findBlock(key);
+        return Arrays.binarySearch(blocks[b], 0, blockSizes[b], key) >= 0;
+    }
+
+    /**
+     * Adds a key.
+     * @return true if the key was not already present.
+     */
+    public boolean add(long key) {
+        if (blockCount == 0) {
+            insertBlock(0, new long[BLOCK_SIZE], 0);
+        }
+        int b = findBlock(key);
+        int pos = Arrays.binarySearch(blocks[b], 0, blockSizes[b], key);
+        if (pos >= 0) {
+            return false;
+        }
+        pos = -pos - 1;
+        if (blockSizes[b] == BLOCK_SIZE) {
+            splitBlock(b);
+            if (pos > blockSizes[b]) {
+                pos -= blockSizes[b];
+                b++;
+            }
+        }
+        long[] block = blocks[b];
+        System.arraycopy(block, pos, block, pos + 1, blockSizes[b] - pos);
+        block[pos] = key;
+        blockSizes[b]++;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes a key.
+     * @return true if the key was present.
+     */
+    public boolean remove(long key) {
+        if (size == 0) return false;
+        int b = findBlock(key);
+        long[] block = blocks[b];
+        int pos = Arrays.binarySearch(block, 0, blockSizes[b], key);
+        if (pos < 0) {
+            return false;
+        }
+        System.arraycopy(block, pos + 1, block, pos, blockSizes[b] - pos - 1);
+        blockSizes[b]--;
+        size--;
+        if (blockSizes[b] == 0) {
+            removeBlock(b);
+        } else if (b + 1 < blockCount && blockSizes[b] + blockSizes[b + 1] <= BLOCK_SIZE / 2) {
+            mergeWithNext(b);
+        }
+        return true;
+    }
+
+    /**
+     * Counts keys strictly less than the given key (the key's rank).
+     */
+    public int countLessThan(long key) {
+        if (size == 0) return 0;
+        int b = findBlock(key);
+        int rank = 0;
+        for (int i = 0; i < b; i++) {
+            rank += blockSizes[i];
+        }
+        int pos = Arrays.binarySearch(blocks[b], 0, blockSizes[b], key);
+        return rank + (pos >= 0 ? pos : -pos - 1);
+    }
+
+    /**
+     * Visits keys from largest to smallest until the visitor returns false.
+     */
+    public void forEachDescending(LongPredicate visitor) {
+        for (int b = blockCount - 1; b >= 0; b--) {
+            long[] block = blocks[b];
+            for (int i = blockSizes[b] - 1; i >= 0; i--) {
+                if (!visitor.test(block[i])) return;
+            }
+        }
+    }
+
+    /**
+     * Visits keys from smallest to largest until the visitor returns false.
+     */
+    public void forEachAscending(LongPredicate visitor) {
+        for (int b = 0; b < blockCount; b++) {
+            long[] block = blocks[b];
+            for (int i = 0, n = blockSizes[b]; i < n; i++) {
+                if (!visitor.test(block[i])) return;
+            }
+        }
+    }
+
+    /**
+     * Visits keys >= fromKey from smallest to largest until the visitor
+     * returns false. Costs O(log n + k) for k visited keys.
+     */
+    public void forEachFrom(long fromKey, LongPredicate visitor) {
+        if (size == 0) return;
+        int b = findBlock(fromKey);
+        int pos = Arrays.binarySearch(blocks[b], 0, blockSizes[b], fromKey);
+        int i = pos >= 0 ? pos : -pos - 1;
+        for (; b < blockCount; b++, i = 0) {
+            long[] block = blocks[b];
+            for (int n = blockSizes[b]; i < n; i++) {
+                if (!visitor.test(block[i])) return;
+            }
+        }
+    }
+
+    /**
+     * Visits keys < toKey from largest to smallest until the visitor returns
+     * false. Costs O(log n + k) for k visited keys.
+     */
+    public void forEachBefore(long toKey, LongPredicate visitor) {
+        if (size == 0) return;
+        int b = findBlock(toKey);
+        int pos = Arrays.binarySearch(blocks[b], 0, blockSizes[b], toKey);
+        int i = (pos >= 0 ? pos : -pos - 1) - 1;
+        for (; b >= 0; b--, i = b >= 0 ? blockSizes[b] - 1 : -1) {
+            long[] block = blocks[b];
+            for (; i >= 0; i--) {
+                if (!visitor.test(block[i])) return;
+            }
+        }
+    }
+
+    /**
+     * Finds the block whose key range covers the key: the last block whose
+     * first key is <= key, or block 0.
+     */
+    private int findBlock(long key) {
+        int lo = 1, hi = blockCount - 1, found = 0;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (blocks[mid][0] <= key) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private void splitBlock(int b) {
+        long[] block = blocks[b];
+        int half = blockSizes[b] / 2;
+        long[] upper = new long[BLOCK_SIZE];
+        System.arraycopy(block, half, upper, 0, blockSizes[b] - half);
+        insertBlock(b + 1, upper, blockSizes[b] - half);
+        blockSizes[b] = half;
+    }
+
+    private void mergeWithNext(int b) {
+        System.arraycopy(blocks[b + 1], 0, blocks[b], blockSizes[b], blockSizes[b + 1]);
+        blockSizes[b] += blockSizes[b + 1];
+        removeBlock(b + 1);
+    }
+
+    private void insertBlock(int at, long[] block, int blockSize) {
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blockCount * 2);
+            blockSizes = Arrays.copyOf(blockSizes, blockCount * 2);
+        }
+        System.arraycopy(blocks, at, blocks, at + 1, blockCount - at);
+        System.arraycopy(blockSizes, at, blockSizes, at + 1, blockCount - at);
+        blocks[at] = block;
+        blockSizes[at] = blockSize;
+        blockCount++;
+    }
+
+    private void removeBlock(int b) {
+        System.arraycopy(blocks, b + 1, blocks, b, blockCount - b - 1);
+        System.arraycopy(blockSizes, b + 1, blockSizes, b, blockCount - b - 1);
+        blockCount--;
+        blocks[blockCount] = null;
+    }
+}
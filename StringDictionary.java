@@ -0,0 +1,195 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A bounded dictionary that gives each distinct string a small int code
+ * (0, 1, 2, ...). Used to dictionary-encode low-cardinality text such as
+ * expiration dates, and to intern repeated names and dates while loading.
+ *
+ * Strings can be looked up straight from UTF-8 bytes: for ASCII text a hit
+ * returns the stored instance without decoding or allocating anything.
+ * Once maxSize strings are stored, new strings get no code (encode returns
+ * NO_CODE) and intern returns them unchanged, so memory stays bounded
+ * however many distinct values the data has.
+ *
+ * Not thread-safe, except that decode() may run concurrently with the other
+ * methods for codes that were handed out before (and safely published), as
+ * snapshots of ColumnarProductStore require.
+ */
+public final class StringDictionary {
+    /** Returned by encode() for strings that do not fit any more. */
+    public static final int NO_CODE = -1;
+
+    private static final int NOT_ASCII = Integer.MIN_VALUE; // see asciiHash
+
+    private final int maxSize;
+    // Replaced, never shrunk, when it grows; volatile so decode() sees the copied entries
+    private volatile String[] values = new String[16];
+    private int[] hashes = new int[16]; // String.hashCode() per code
+    private int size;
+    private int[] table = new int[32]; // open addressing: code + 1, or 0 for an empty bucket
+
+    public StringDictionary(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the string with a code.
+     */
+    public String decode(int code) {
+        return values[code];
+    }
+
+    /**
+     * Returns the code of a string, adding it if it is new.
+     * @return The code, or NO_CODE if the string is new and the dictionary is full.
+     */
+    public int encode(String text) {
+        int hash = text.hashCode();
+        int bucket = bucket(hash);
+        while (table[bucket] != 0) {
+            int code = table[bucket] - 1;
+            if (hashes[code] == hash && values[code].equals(text)) {
+                return code;
+            }
+            bucket = (bucket + 1) & (table.length - 1);
+        }
+        return add(text, hash, bucket);
+    }
+
+    /**
+     * Returns the stored instance equal to a string, storing it if it is new
+     * and there is room.
+     */
+    public String intern(String text) {
+        int code = encode(text);
+        return code == NO_CODE ? text : values[code];
+    }
+
+    /**
+     * Returns the string of UTF-8 bytes (malformed input is replaced, as by
+     * new String), reusing the stored instance if there is one.
+     */
+    public String intern(byte[] bytes, int start, int end) {
+        int hash = asciiHash(bytes, start, end);
+        if (hash == NOT_ASCII) {
+            return intern(new String(bytes, start, end - start, StandardCharsets.UTF_8));
+        }
+        int bucket = bucket(hash);
+        while (table[bucket] != 0) {
+            int code = table[bucket] - 1;
+            if (hashes[code] == hash && equalsAscii(values[code], bytes, start, end)) {
+                return values[code];
+            }
+            bucket = (bucket + 1) & (table.length - 1);
+        }
+        String text = new String(bytes, start, end - start, StandardCharsets.ISO_8859_1); // ASCII
+        int code = add(text, hash, bucket);
+        return code == NO_CODE ? text : values[code];
+    }
+
+    /**
+     * Finds the stored string of ASCII bytes in a buffer, without decoding them.
+     * @return The stored instance, or null if there is none or the bytes are not ASCII.
+     */
+    public String lookup(ByteBuffer buffer, int offset, int length) {
+        int hash = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b < 0) {
+                return null;
+            }
+            hash = 31 * hash + b;
+        }
+        int bucket = bucket(hash);
+        while (table[bucket] != 0) {
+            int code = table[bucket] - 1;
+            String value = values[code];
+            if (hashes[code] == hash && value.length() == length && equalsAscii(value, buffer, offset)) {
+                return value;
+            }
+            bucket = (bucket + 1) & (table.length - 1);
+        }
+        return null;
+    }
+
+    private int add(String text, int hash, int bucket) {
+        if (size == maxSize) {
+            return NO_CODE;
+        }
+        if (size == values.length) {
+            hashes = Arrays.copyOf(hashes, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        int code = size++;
+        hashes[code] = hash;
+        values[code] = text;
+        table[bucket] = code + 1;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return code;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        for (int code = 0; code < size; code++) {
+            int bucket = bucket(hashes[code]);
+            while (table[bucket] != 0) {
+                bucket = (bucket + 1) & (table.length - 1);
+            }
+            table[bucket] = code + 1;
+        }
+    }
+
+    private int bucket(int hash) {
+        int mixed = hash * 0x9E3779B9;
+        return (mixed ^ (mixed >>> 16)) & (table.length - 1);
+    }
+
+    /**
+     * Returns String.hashCode() of ASCII bytes (for ASCII, bytes and chars
+     * are the same), or NOT_ASCII if a byte is not ASCII. An ASCII string that
+     * happens to hash to NOT_ASCII is just treated as non-ASCII.
+     */
+    private static int asciiHash(byte[] bytes, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            byte b = bytes[i];
+            if (b < 0) {
+                return NOT_ASCII;
+            }
+            hash = 31 * hash + b;
+        }
+        return hash;
+    }
+
+    private static boolean equalsAscii(String value, byte[] bytes, int start, int end) {
+        if (value.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i - start) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsAscii(String value, ByteBuffer buffer, int offset) {
+        for (int i = 0, n = value.length(); i < n; i++) {
+            if (value.charAt(i) != buffer.get(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,96 @@
+import inventory.bench.InventoryTarget;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the benchmark operations against a real Inventory (see InventoryTarget).
+ * Journaling is disabled, so mutations measure the in-memory work only and
+ * saveToFile always writes a full snapshot.
+ */
+public class InventoryBenchmarkTarget implements InventoryTarget {
+    private Inventory inventory;
+
+    private static Inventory newInventory(Path saveFile, String storageMode) {
+        Inventory inventory = new Inventory(saveFile, Inventory.StorageMode.valueOf(storageMode));
+        inventory.setJournal(null);
+        return inventory;
+    }
+
+    @Override
+    public void populate(int count, String storageMode, Path saveFile) {
+        inventory = null; // Let the previous trial's products be collected first
+        Inventory populated = newInventory(saveFile, storageMode);
+        SyntheticProducts.populate(populated, count);
+        inventory = populated;
+    }
+
+    @Override
+    public int size() {
+        return inventory.size();
+    }
+
+    @Override
+    public Object findProductById(int productId) throws ProductNotFoundException {
+        return inventory.findProductById(productId);
+    }
+
+    @Override
+    public void removeProduct(int productId) throws ProductNotFoundException {
+        inventory.removeProduct(productId);
+    }
+
+    @Override
+    public void restoreProducts(int[] productIds) {
+        List<Product> products = new ArrayList<>(productIds.length);
+        for (int productId : productIds) {
+            products.add(SyntheticProducts.create(productId, 0));
+        }
+        inventory.addAll(products);
+    }
+
+    @Override
+    public Object prepareUpdate(int productId, int variant) {
+        return SyntheticProducts.create(productId, variant);
+    }
+
+    @Override
+    public void updateProduct(Object product) throws ProductNotFoundException {
+        inventory.updateProduct((Product) product);
+    }
+
+    @Override
+    public double getTotalInventoryValue() {
+        return inventory.getTotalInventoryValue();
+    }
+
+    @Override
+    public Object getCategoryCounts() {
+        return inventory.getCategoryCounts();
+    }
+
+    @Override
+    public Object getTopNStockedProducts(int n) {
+        return inventory.getTopNStockedProducts(n);
+    }
+
+    @Override
+    public void setSnapshotFormat(String format) {
+        inventory.setSnapshotFormat(Inventory.SnapshotFormat.valueOf(format));
+    }
+
+    @Override
+    public void saveToFile() throws IOException {
+        inventory.saveToFile();
+    }
+
+    @Override
+    public void loadFromFile(Path file, String storageMode) throws IOException {
+        inventory = null;
+        Inventory loaded = newInventory(file, storageMode);
+        loaded.loadFromFile();
+        inventory = loaded;
+    }
+}
@@ -0,0 +1,95 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic Electronics and Groceries products for benchmarks.
+ *
+ * Products are a pure function of (id, variant): the same arguments always
+ * give the same product, so a benchmark can recreate a removed product or
+ * build an update without keeping copies around. Variant 0 is the product as
+ * first added; other variants change its price, quantity and detail.
+ *
+ * Can also be run on its own to write a snapshot file:
+ *   java SyntheticProducts <count> <file> [csv|binary]
+ */
+public final class SyntheticProducts {
+    private static final String[] ELECTRONICS = {
+        "Laptop", "Phone", "Tablet", "Monitor", "Headphones", "Keyboard", "Mouse", "Camera", "Speaker", "Router"
+    };
+    private static final String[] GROCERIES = {
+        "Apples", "Bread", "Milk", "Cheese", "Rice", "Coffee", "Pasta", "Eggs", "Yogurt", "Olive Oil"
+    };
+    private static final String[] BRANDS = {"Acme", "Zenith", "Nova", "Orbit", "Summit", "Harbor", "Vertex", "Maple"};
+    private static final LocalDate FIRST_EXPIRY = LocalDate.of(2026, 1, 1);
+    private static final int BATCH_SIZE = 100_000;
+
+    private SyntheticProducts() {
+    }
+
+    /**
+     * Returns the given variant of the product with the given ID.
+     * Roughly 55% are Electronics, and about 2% have a quantity below the
+     * default low-stock threshold.
+     */
+    public static Product create(int id, int variant) {
+        SplittableRandom random = new SplittableRandom(id * 0x9E3779B97F4A7C15L + variant);
+        // The type must not change between variants, or updates would be rejected
+        boolean electronics = new SplittableRandom(id * 0x9E3779B97F4A7C15L).nextInt(100) < 55;
+        String brand = BRANDS[random.nextInt(BRANDS.length)];
+        int quantity = random.nextInt(50) == 0
+                ? random.nextInt(Inventory.DEFAULT_LOW_STOCK_THRESHOLD)
+                : Inventory.DEFAULT_LOW_STOCK_THRESHOLD + random.nextInt(490);
+        if (electronics) {
+            String name = brand + " " + ELECTRONICS[random.nextInt(ELECTRONICS.length)] + " " + (100 + random.nextInt(900));
+            return new Electronics(id, name, cents(random, 20, 3000), quantity, random.nextInt(37));
+        }
+        String name = brand + " " + GROCERIES[random.nextInt(GROCERIES.length)];
+        String expiry = FIRST_EXPIRY.plusDays(random.nextInt(730)).toString();
+        return new Groceries(id, name, cents(random, 0.5, 50), quantity, expiry);
+    }
+
+    private static double cents(SplittableRandom random, double min, double max) {
+        return Math.round(random.nextDouble(min, max) * 100) / 100.0;
+    }
+
+    /**
+     * Adds products 1..count (variant 0) to an empty inventory, in batches.
+     */
+    public static void populate(Inventory inventory, int count) {
+        List<Product> batch = new ArrayList<>(Math.min(count, BATCH_SIZE));
+        for (int id = 1; id <= count; id++) {
+            batch.add(create(id, 0));
+            if (batch.size() == BATCH_SIZE) {
+                inventory.addAll(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            inventory.addAll(batch);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java SyntheticProducts <count> <file> [csv|binary]");
+            System.exit(2);
+        }
+        int count = Integer.parseInt(args[0]);
+        Path file = Paths.get(args[1]);
+        Inventory.SnapshotFormat format = args.length > 2
+                ? Inventory.SnapshotFormat.valueOf(args[2].toUpperCase(Locale.ROOT))
+                : Inventory.SnapshotFormat.CSV;
+        // Columnar storage keeps even 10M products within a modest heap
+        Inventory inventory = new Inventory(file, Inventory.StorageMode.COLUMNAR);
+        inventory.setJournal(null);
+        populate(inventory, count);
+        inventory.exportTo(file, format);
+        System.out.println("Wrote " + count + " products to " + file);
+    }
+}
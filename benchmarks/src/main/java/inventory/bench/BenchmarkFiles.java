@@ -0,0 +1,41 @@
+package inventory.bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Temporary files for the benchmarks.
+ */
+final class BenchmarkFiles {
+
+    private BenchmarkFiles() {
+    }
+
+    /**
+     * Returns a save file for benchmarks that never save; it is not created.
+     */
+    static Path unusedSaveFile() {
+        return Paths.get(System.getProperty("java.io.tmpdir"), "inventory-benchmark-unused.csv");
+    }
+
+    static Path createDirectory() {
+        try {
+            return Files.createTempDirectory("inventory-benchmark");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void deleteDirectory(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("Could not delete " + directory + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package inventory.bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The Inventory operations the benchmarks measure.
+ *
+ * JMH only accepts benchmarks in a named package, and classes in a named
+ * package cannot refer to the application's default-package classes. So the
+ * benchmarks call Inventory through this interface, implemented by
+ * InventoryBenchmarkTarget in the default package. It has a single
+ * implementation, so the JIT inlines the calls.
+ */
+public interface InventoryTarget {
+
+    /**
+     * Creates the default-package implementation.
+     */
+    static InventoryTarget create() {
+        try {
+            return (InventoryTarget) Class.forName("InventoryBenchmarkTarget").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("InventoryBenchmarkTarget is not on the classpath", e);
+        }
+    }
+
+    /**
+     * Replaces the inventory with an unjournaled one holding the synthetic
+     * products 1..count, persisted to the given snapshot file.
+     * @param storageMode An Inventory.StorageMode name.
+     */
+    void populate(int count, String storageMode, Path saveFile);
+
+    int size();
+
+    Object findProductById(int productId) throws Exception;
+
+    void removeProduct(int productId) throws Exception;
+
+    /**
+     * Adds the given products back as first generated, in one batch.
+     */
+    void restoreProducts(int[] productIds);
+
+    /**
+     * Builds a changed copy of a product, to pass to updateProduct.
+     */
+    Object prepareUpdate(int productId, int variant);
+
+    void updateProduct(Object product) throws Exception;
+
+    double getTotalInventoryValue();
+
+    Object getCategoryCounts();
+
+    Object getTopNStockedProducts(int n);
+
+    /**
+     * Sets the snapshot format (an Inventory.SnapshotFormat name) used by saveToFile.
+     */
+    void setSnapshotFormat(String format);
+
+    void saveToFile() throws IOException;
+
+    /**
+     * Replaces the inventory with an unjournaled one and loads it from the
+     * given snapshot file.
+     */
+    void loadFromFile(Path file, String storageMode) throws IOException;
+}
@@ -0,0 +1,72 @@
+package inventory.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full snapshot writes (saveToFile without a journal) and loads, in both
+ * snapshot formats. Each call handles the whole inventory, so every
+ * iteration is a single timed call.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class PersistenceBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"OBJECTS", "COLUMNAR"})
+    public String storage;
+
+    @Param({"CSV", "BINARY"})
+    public String format;
+
+    private InventoryTarget target;
+    private Path directory;
+    private Path saveFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = BenchmarkFiles.createDirectory();
+        // Loading looks for inventory.csv and inventory.bin next to each other
+        saveFile = directory.resolve("inventory.csv");
+        target = InventoryTarget.create();
+        target.populate(size, storage, saveFile);
+        target.setSnapshotFormat(format);
+        target.saveToFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkFiles.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public void saveToFile() throws Exception {
+        target.saveToFile();
+    }
+
+    @Benchmark
+    public int loadFromFile() throws Exception {
+        target.loadFromFile(saveFile, storage);
+        return target.size();
+    }
+}
@@ -0,0 +1,72 @@
+package inventory.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths: lookup by ID and the dashboard aggregates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class QueryBenchmark {
+    private static final int LOOKUPS = 1 << 12;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"OBJECTS", "COLUMNAR"})
+    public String storage;
+
+    private InventoryTarget target;
+    // Random IDs, so lookups are not served from the same cache lines every time
+    private int[] lookupIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        target = InventoryTarget.create();
+        target.populate(size, storage, BenchmarkFiles.unusedSaveFile());
+        SplittableRandom random = new SplittableRandom(42);
+        lookupIds = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookupIds[i] = 1 + random.nextInt(size);
+        }
+    }
+
+    @Benchmark
+    public Object findProductById() throws Exception {
+        return target.findProductById(lookupIds[next++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public double getTotalInventoryValue() {
+        return target.getTotalInventoryValue();
+    }
+
+    @Benchmark
+    public Object getCategoryCounts() {
+        return target.getCategoryCounts();
+    }
+
+    @Benchmark
+    public Object getTopNStockedProducts() {
+        return target.getTopNStockedProducts(10);
+    }
+}
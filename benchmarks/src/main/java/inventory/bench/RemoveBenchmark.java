@@ -0,0 +1,77 @@
+package inventory.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * removeProduct. Removal is not repeatable, so every iteration removes a
+ * fresh set of random products once, and the setup before the next
+ * iteration (not measured) adds them back.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 50)
+@Measurement(iterations = 20)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class RemoveBenchmark {
+    private static final int REMOVALS = 1000;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"OBJECTS", "COLUMNAR"})
+    public String storage;
+
+    private InventoryTarget target;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private int[] removed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        target = InventoryTarget.create();
+        target.populate(size, storage, BenchmarkFiles.unusedSaveFile());
+        removed = null;
+    }
+
+    @Setup(Level.Iteration)
+    public void chooseProducts() {
+        if (removed != null) {
+            target.restoreProducts(removed);
+        }
+        // Distinct IDs, so none is removed twice in one iteration
+        BitSet chosen = new java.util.BitSet(size + 1);
+        removed = new int[REMOVALS];
+        for (int i = 0; i < REMOVALS; i++) {
+            int productId;
+            do {
+                productId = 1 + random.nextInt(size);
+            } while (chosen.get(productId));
+            chosen.set(productId);
+            removed[i] = productId;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REMOVALS)
+    public void removeProduct() throws Exception {
+        for (int productId : removed) {
+            target.removeProduct(productId);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package inventory.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * updateProduct on random products. Each product alternates between two
+ * prepared variants, so every update really changes price, quantity and detail.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class UpdateBenchmark {
+    private static final int UPDATES = 1 << 12;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"OBJECTS", "COLUMNAR"})
+    public String storage;
+
+    private InventoryTarget target;
+    private Object[][] updates;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        target = InventoryTarget.create();
+        target.populate(size, storage, BenchmarkFiles.unusedSaveFile());
+        SplittableRandom random = new SplittableRandom(42);
+        updates = new Object[2][UPDATES];
+        for (int i = 0; i < UPDATES; i++) {
+            int productId = 1 + random.nextInt(size);
+            updates[0][i] = target.prepareUpdate(productId, 1);
+            updates[1][i] = target.prepareUpdate(productId, 2);
+        }
+    }
+
+    @Benchmark
+    public void updateProduct() throws Exception {
+        int i = next++;
+        target.updateProduct(updates[(i / UPDATES) & 1][i & (UPDATES - 1)]);
+    }
+}